@@ -6,8 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 import src.main.java.minesweeper.bot.strategy.BotStrategy;
+import src.main.java.minesweeper.bot.strategy.CancellableStrategy;
 import src.main.java.minesweeper.bot.strategy.DecisionDetailsProvider;
 import src.main.java.minesweeper.bot.strategy.FlaggingStrategy;
+import src.main.java.minesweeper.bot.strategy.MoveBatch;
 import src.main.java.minesweeper.logic.MinesweeperTileable;
 import src.main.java.minesweeper.logic.TilingState;
 
@@ -36,6 +38,13 @@ public class Bot<T extends MinesweeperTileable> {
         return strategy.tileToClear();
     }
 
+    /**
+     * @return the moves to make before asking again, according to the strategy.
+     */
+    public MoveBatch<T> nextMoves() {
+        return strategy.nextMoves();
+    }
+
     /**
      * @return the decision details, e.g. numerical metrics on what tile is being cleared.
      */
@@ -58,6 +67,24 @@ public class Bot<T extends MinesweeperTileable> {
         return new ArrayList<>();
     }
 
+    /**
+     * Stops the tileToClear() in progress, if the strategy supports it. Can be called from any thread.
+     */
+    public void cancel() {
+        if (strategy instanceof CancellableStrategy) {
+            ((CancellableStrategy) strategy).cancel();
+        }
+    }
+
+    /**
+     * Clears a cancel(), so the strategy searches normally again, if the strategy supports it.
+     */
+    public void resume() {
+        if (strategy instanceof CancellableStrategy) {
+            ((CancellableStrategy) strategy).resume();
+        }
+    }
+
     /**
      * @return the name of the strategy this bot uses.
      */
@@ -2,6 +2,7 @@ package src.main.java.minesweeper.bot;
 
 // import java.util.List;
 
+import src.main.java.minesweeper.bot.strategy.MoveBatch;
 import src.main.java.minesweeper.logic.Minesweeper;
 import src.main.java.minesweeper.logic.Status;
 import src.main.java.minesweeper.logic.Tile;
@@ -29,17 +30,23 @@ public class BotController {
     }
 
     /**
-     * Method that flags and clears the appropriate tiles. Performs the next move.
-
+     * Method that flags and clears the appropriate tiles. Performs the next batch of moves of the bot, so several
+     * moves can be made from one evaluation of the board.
      */
     public void next() {
         if (hasNext()) {
-            Tile tileToClear = bot.tileToClear();
-            // List<Tile> tilesToFlag = bot.tilesToFlag();
-            // for (Tile tile : tilesToFlag) {
-            //     tile.setFlag(true);
-            // }
-            minesweeper.clear(tileToClear);
+            MoveBatch<Tile> moves = bot.nextMoves();
+            for (Tile tile : moves.getTilesToFlag()) {
+                if (!tile.isFlagged()) {
+                    minesweeper.flag(tile.getRow(), tile.getColumn());
+                }
+            }
+            for (Tile tile : moves.getTilesToClear()) {
+                if (!hasNext()) {
+                    break;
+                }
+                minesweeper.clear(tile);
+            }
         }
     }
 }
@@ -10,6 +10,8 @@ import java.util.Scanner;
 
 import src.main.java.minesweeper.bot.strategy.BotStrategy;
 import src.main.java.minesweeper.bot.strategy.StrategyTypeOnTile;
+import src.main.java.minesweeper.bot.strategy.probabilistic.ProbabilisticStrategy;
+import src.main.java.minesweeper.bot.strategy.probabilistic.SolveProfile;
 import src.main.java.minesweeper.logic.Difficulty;
 import src.main.java.minesweeper.logic.GameSummary;
 import src.main.java.minesweeper.logic.Minesweeper;
@@ -30,12 +32,16 @@ public class BotTester {
     /** Data to write */
     private List<GameSummary> data;
 
+    /** Solver profiles of every move of this run, if the strategy is probabilistic */
+    private SolveProfile profile;
+
     public BotTester(StrategyTypeOnTile strategyType, int numTrials, int rows, int columns) {
         this.strategy = strategyType.getStrategy();
         this.numTrials = numTrials;
         this.rows = rows;
         this.columns = columns;
         this.data = new ArrayList<>();
+        this.profile = new SolveProfile();
     }
 
     /**
@@ -61,6 +67,9 @@ public class BotTester {
 
         while (controller.hasNext()) {
             controller.next();
+            if (strategy instanceof ProbabilisticStrategy) {
+                profile.add(((ProbabilisticStrategy<Tile>) strategy).solveProfile());
+            }
         }
 
         return minesweeper.getSummary();
@@ -112,6 +121,17 @@ public class BotTester {
         read(file);
         collectData();
         write(file);
+        if (profile.getNumSolves() > 0) {
+            System.out.println(profile);
+        }
+    }
+
+    /**
+     * @return the solver profiles of every move played so far, added together. Empty if the strategy is not
+     *         probabilistic.
+     */
+    public SolveProfile getProfile() {
+        return profile;
     }
 
     /**
@@ -0,0 +1,118 @@
+package src.main.java.minesweeper.bot;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import src.main.java.minesweeper.bot.strategy.MoveBatch;
+import src.main.java.minesweeper.bot.strategy.probabilistic.ProbabilisticStrategy;
+import src.main.java.minesweeper.bot.strategy.probabilistic.SolverConfig;
+import src.main.java.minesweeper.logic.ChunkedMinesweeper;
+import src.main.java.minesweeper.logic.FrontierRegion;
+import src.main.java.minesweeper.logic.Tile;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * Driver class playing the probabilistic strategy on an unbounded ChunkedMinesweeper board, until it hits a mine or
+ * makes the given number of batches of moves. Each batch solves every frontier region of the game and makes every move
+ * their deduction passes prove, or if there is none, clears the tile of lowest probability among the chunks of the
+ * regions.
+ * Every few batches, it prints the progress, the number of loaded and resolved chunks, the number of regions and of
+ * tiles the solver saw in the last batch, and the used heap.
+ * Usage: ChunkedBoardBenchmark [number of batches] [density] [seed]
+ */
+public class ChunkedBoardBenchmark {
+
+    private static final int REPORT_INTERVAL = 50;
+
+    public static void main(String[] args) {
+        int numBatches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.16;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        ChunkedMinesweeper game = new ChunkedMinesweeper(density, seed);
+        ProbabilisticStrategy<Tile> strategy = new ProbabilisticStrategy<>(new Random(seed));
+        SolverConfig guessConfig = new SolverConfig();
+        guessConfig.setDeduceFirst(false);
+        guessConfig.setTimeLimitMillis(5000);
+        ProbabilisticStrategy<Tile> guessStrategy = new ProbabilisticStrategy<>(new Random(seed), guessConfig);
+
+        System.out.printf("%8s %8s %10s %8s %9s %8s %9s %9s %10s%n", "batches", "moves", "cleared", "loaded", "resolved",
+            "regions", "tiles", "heap MB", "ms/batch");
+        long start = System.nanoTime();
+        int batch = 0;
+        while (game.isPlaying() && batch < numBatches) {
+            List<FrontierRegion> regions = game.getFrontierRegions();
+            // positions on the board, as the regions overlap
+            Set<Long> tilesToFlag = new LinkedHashSet<>();
+            Set<Long> tilesToClear = new LinkedHashSet<>();
+            long guess = 0;
+            double guessProbability = Double.POSITIVE_INFINITY;
+            long numTiles = 0;
+            for (FrontierRegion region : regions) {
+                TilingState<Tile> state = region.getTilingState();
+                numTiles += (long) state.getNumRows() * state.getNumColumns();
+                strategy.setTilingState(state);
+                MoveBatch<Tile> moves = strategy.nextMoves();
+                Map<Tile, Double> probabilities = strategy.decisionDetails();
+                if (strategy.solveProfile().getNumDeduced() > 0) {
+                    // proved from the numbers alone, unlike probabilities, which depend on the estimated number of mines
+                    boolean played = false;
+                    for (Tile tile : moves.getTilesToFlag()) {
+                        if (region.isPlayable(tile)) {
+                            tilesToFlag.add(pack(region.rowOf(tile), region.columnOf(tile)));
+                            played = true;
+                        }
+                    }
+                    for (Tile tile : moves.getTilesToClear()) {
+                        if (region.isPlayable(tile)) {
+                            tilesToClear.add(pack(region.rowOf(tile), region.columnOf(tile)));
+                            played = true;
+                        }
+                    }
+                    if (played) {
+                        continue;
+                    }
+                    // only hidden tiles were proved safe, so the region still needs probabilities for the guess
+                    guessStrategy.setTilingState(state);
+                    guessStrategy.tileToClear();
+                    probabilities = guessStrategy.decisionDetails();
+                }
+                // only the chunk of a region competes for the guess, see FrontierRegion.isInCore()
+                for (Map.Entry<Tile, Double> entry : probabilities.entrySet()) {
+                    Tile tile = entry.getKey();
+                    if (entry.getValue() < guessProbability && region.isInCore(tile) && region.isPlayable(tile)) {
+                        guessProbability = entry.getValue();
+                        guess = pack(region.rowOf(tile), region.columnOf(tile));
+                    }
+                }
+            }
+            if (tilesToFlag.isEmpty() && tilesToClear.isEmpty() && guessProbability < Double.POSITIVE_INFINITY) {
+                tilesToClear.add(guess);
+            }
+            for (long position : tilesToFlag) {
+                game.flag((int) (position >> 32), (int) position);
+            }
+            for (long position : tilesToClear) {
+                if (!game.isPlaying()) {
+                    break;
+                }
+                game.clear((int) (position >> 32), (int) position);
+            }
+            batch++;
+            if (batch % REPORT_INTERVAL == 0 || !game.isPlaying() || batch == numBatches) {
+                Runtime runtime = Runtime.getRuntime();
+                System.out.printf("%8d %8d %10d %8d %9d %8d %9d %9.1f %10.2f%n", batch, game.getNumberOfMoves(),
+                    game.getNumberOfTilesCleared(), game.getNumberOfLoadedChunks(), game.getNumberOfResolvedChunks(),
+                    regions.size(), numTiles, (runtime.totalMemory() - runtime.freeMemory()) / 1e6,
+                    (System.nanoTime() - start) / 1e6 / batch);
+            }
+        }
+        System.out.println(game.status());
+    }
+
+    private static long pack(int row, int column) {
+        return (long) row << 32 | column & 0xFFFFFFFFL;
+    }
+}
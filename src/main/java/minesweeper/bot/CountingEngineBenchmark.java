@@ -0,0 +1,99 @@
+package src.main.java.minesweeper.bot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import src.main.java.minesweeper.bot.strategy.probabilistic.CountingEngine;
+import src.main.java.minesweeper.bot.strategy.probabilistic.Solver;
+import src.main.java.minesweeper.bot.strategy.probabilistic.SolverConfig;
+import src.main.java.minesweeper.logic.Difficulty;
+import src.main.java.minesweeper.logic.Tile;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * Driver class comparing the time of each CountingEngine, on every recorded position and on the hardest ones.
+ * Positions are recorded like in OrderingBenchmark, and solved without the deduction pass. The hard positions are the
+ * slowest for BACKTRACKING. Every engine must give the probabilities of BACKTRACKING, the largest difference is printed.
+ * Usage: CountingEngineBenchmark [number of games per difficulty] [seed] [percentage of hard positions]
+ */
+public class CountingEngineBenchmark {
+
+    private static final Difficulty[] DIFFICULTIES = {Difficulty.HARD, Difficulty.EXPERT};
+
+    private static final int WARM_UP_POSITIONS = 100;
+
+    public static void main(String[] args) {
+        int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int hardPercentage = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        Random random = new Random(seed);
+        for (Difficulty difficulty : DIFFICULTIES) {
+            List<TilingState<Tile>> positions = new ArrayList<>();
+            for (int i = 0; i < numGames; i++) {
+                positions.addAll(OrderingBenchmark.recordPositions(difficulty, new Random(random.nextLong())));
+            }
+            CountingEngine[] engines = CountingEngine.values();
+            // warm up every engine, so the first one is not timed while the JIT compiles shared code
+            for (CountingEngine engine : engines) {
+                SolverConfig config = new SolverConfig();
+                config.setDeduceFirst(false);
+                config.setCountingEngine(engine);
+                for (int p = 0; p < Math.min(WARM_UP_POSITIONS, positions.size()); p++) {
+                    new Solver<>(positions.get(p), config).tileToClear(new Random(0));
+                }
+            }
+            long[][] nanos = new long[engines.length][positions.size()];
+            List<Map<Tile, Double>> reference = new ArrayList<>();
+            double[] maxDifferences = new double[engines.length];
+            for (int e = 0; e < engines.length; e++) {
+                SolverConfig config = new SolverConfig();
+                config.setDeduceFirst(false);
+                config.setCountingEngine(engines[e]);
+                for (int p = 0; p < positions.size(); p++) {
+                    long start = System.nanoTime();
+                    Solver<Tile> solver = new Solver<>(positions.get(p), config);
+                    solver.tileToClear(new Random(0));
+                    nanos[e][p] = System.nanoTime() - start;
+                    Map<Tile, Double> probabilities = solver.getProbabilityMap();
+                    if (e == 0) {
+                        reference.add(probabilities);
+                    } else {
+                        for (Map.Entry<Tile, Double> entry : probabilities.entrySet()) {
+                            double difference = Math.abs(entry.getValue() - reference.get(p).get(entry.getKey()));
+                            maxDifferences[e] = Math.max(maxDifferences[e], difference);
+                        }
+                    }
+                }
+            }
+
+            // the hard positions are the slowest for the first engine, BACKTRACKING
+            Integer[] byTime = new Integer[positions.size()];
+            for (int p = 0; p < byTime.length; p++) {
+                byTime[p] = p;
+            }
+            Arrays.sort(byTime, Comparator.comparingLong(p -> -nanos[0][p]));
+            int numHard = Math.max(1, positions.size() * hardPercentage / 100);
+
+            System.out.println(difficulty + ": " + positions.size() + " positions, " + numHard + " hard");
+            System.out.printf("%-16s %12s %12s %12s %14s%n", "engine", "all millis", "hard millis", "max millis", "max difference");
+            for (int e = 0; e < engines.length; e++) {
+                long all = 0;
+                long hard = 0;
+                long max = 0;
+                for (int p = 0; p < positions.size(); p++) {
+                    all += nanos[e][p];
+                    max = Math.max(max, nanos[e][p]);
+                }
+                for (int i = 0; i < numHard; i++) {
+                    hard += nanos[e][byTime[i]];
+                }
+                System.out.printf("%-16s %12.1f %12.1f %12.1f %14.2e%n", engines[e], all / 1e6, hard / 1e6, max / 1e6, maxDifferences[e]);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package src.main.java.minesweeper.bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import src.main.java.minesweeper.bot.strategy.probabilistic.ProbabilisticStrategy;
+import src.main.java.minesweeper.bot.strategy.probabilistic.Solver;
+import src.main.java.minesweeper.bot.strategy.probabilistic.SolverConfig;
+import src.main.java.minesweeper.bot.strategy.probabilistic.VariableOrdering;
+import src.main.java.minesweeper.logic.Board;
+import src.main.java.minesweeper.logic.Difficulty;
+import src.main.java.minesweeper.logic.Minesweeper;
+import src.main.java.minesweeper.logic.Tile;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * Driver class comparing the size of the solution tree under each VariableOrdering.
+ * Positions are recorded from seeded games played by the probabilistic strategy, then every position is solved with
+ * every ordering, without the deduction pass so the search runs on each of them.
+ * Usage: OrderingBenchmark [number of games per difficulty] [seed]
+ */
+public class OrderingBenchmark {
+
+    private static final Difficulty[] DIFFICULTIES = {Difficulty.MEDIUM, Difficulty.HARD, Difficulty.EXPERT};
+
+    public static void main(String[] args) {
+        int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        Random random = new Random(seed);
+        for (Difficulty difficulty : DIFFICULTIES) {
+            List<TilingState<Tile>> positions = new ArrayList<>();
+            for (int i = 0; i < numGames; i++) {
+                positions.addAll(recordPositions(difficulty, new Random(random.nextLong())));
+            }
+            System.out.println(difficulty + ": " + positions.size() + " positions");
+            System.out.printf("%-24s %14s %12s %12s %10s%n", "ordering", "total nodes", "mean nodes", "max nodes", "millis");
+            for (VariableOrdering ordering : VariableOrdering.values()) {
+                SolverConfig config = new SolverConfig();
+                config.setDeduceFirst(false);
+                config.setVariableOrdering(ordering);
+                long totalNodes = 0;
+                long maxNodes = 0;
+                long start = System.nanoTime();
+                for (TilingState<Tile> position : positions) {
+                    Solver<Tile> solver = new Solver<>(position, config);
+                    solver.tileToClear(new Random(0));
+                    totalNodes += solver.getNumNodes();
+                    maxNodes = Math.max(maxNodes, solver.getNumNodes());
+                }
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("%-24s %14d %12.1f %12d %10d%n", ordering, totalNodes,
+                    (double) totalNodes / Math.max(1, positions.size()), maxNodes, millis);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Plays one game to completion and records a copy of the game state before every move but the first.
+     * @param difficulty the difficulty of the game to play
+     * @param random the random instance for the mines and the strategy
+     * @return the recorded game states
+     */
+    static List<TilingState<Tile>> recordPositions(Difficulty difficulty, Random random) {
+        Minesweeper minesweeper = new Minesweeper(difficulty, new Random(random.nextLong()));
+        Bot<Tile> bot = new Bot<>(minesweeper.getTilingState(), new ProbabilisticStrategy<>(new Random(random.nextLong())));
+        BotController controller = new BotController(minesweeper, bot);
+        List<TilingState<Tile>> positions = new ArrayList<>();
+        while (controller.hasNext()) {
+            if (minesweeper.getNumberOfMoves() > 0) {
+                positions.add(copyOf(minesweeper.getTilingState()));
+            }
+            controller.next();
+        }
+        return positions;
+    }
+
+    /**
+     * Copies what a player sees of a game state: the numbers of cleared tiles and the flags.
+     */
+    static TilingState<Tile> copyOf(TilingState<Tile> tilingState) {
+        TilingState<Tile> copy = new TilingState<>(tilingState.getNumRows(), tilingState.getNumColumns(), tilingState.getTotalNumberOfMines());
+        Board board = new Board(tilingState.getNumRows(), tilingState.getNumColumns(), tilingState.get(0).initialDensity());
+        for (Tile tile : tilingState) {
+            Tile tileCopy = new Tile(board, tile.getRow(), tile.getColumn());
+            if (tile.isCleared()) {
+                tileCopy.setCleared();
+                for (int i = 0; i < tile.getNumberOfNeighboringMines(); i++) {
+                    tileCopy.incrementNumberOfNeighboringMines();
+                }
+            }
+            tileCopy.setFlag(tile.isFlagged());
+            copy.add(tile.getRow(), tile.getColumn(), tileCopy);
+        }
+        return copy;
+    }
+}
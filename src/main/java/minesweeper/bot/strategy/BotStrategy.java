@@ -1,5 +1,8 @@
 package src.main.java.minesweeper.bot.strategy;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import src.main.java.minesweeper.logic.MinesweeperTileable;
 import src.main.java.minesweeper.logic.TilingState;
 
@@ -28,6 +31,17 @@ public abstract class BotStrategy<T extends MinesweeperTileable> {
      */
     public abstract T tileToClear();
 
+    /**
+     * Finds every move the strategy is certain of from one evaluation of the game state, so the caller can make them
+     * all before asking again. By default, the single tile of tileToClear() and no flags.
+     * @return the tiles to clear, starting with the tile of tileToClear(), and the tiles to flag.
+     */
+    public MoveBatch<T> nextMoves() {
+        List<T> tilesToClear = new ArrayList<>();
+        tilesToClear.add(tileToClear());
+        return new MoveBatch<>(tilesToClear, new ArrayList<>());
+    }
+
     /**
      * Each strategy has its own name.
      * @return the name of the strategy
@@ -0,0 +1,19 @@
+package src.main.java.minesweeper.bot.strategy;
+
+/**
+ * Interface that strategies whose tileToClear() can be stopped from another thread must implement.
+ */
+public interface CancellableStrategy {
+
+    /**
+     * Makes the tileToClear() in progress, if any, return its best answer so far as soon as possible.
+     * Can be called from any thread.
+     */
+    void cancel();
+
+    /**
+     * Clears a cancel(), so that later calls to tileToClear() search normally again. A cancel() stays in effect until
+     * then, even if it came before or between calls to tileToClear(), so only the caller of cancel() should call it.
+     */
+    void resume();
+}
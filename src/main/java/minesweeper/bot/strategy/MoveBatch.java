@@ -0,0 +1,40 @@
+package src.main.java.minesweeper.bot.strategy;
+
+import java.util.List;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * The moves a strategy makes from one evaluation of the game state: tiles to clear in order, and tiles to flag.
+ * Every tile to clear after the first, and every tile to flag, must be certain, so the whole batch can be applied
+ * before the game state is evaluated again.
+ * @param <T> the type of tile to operate on, must be minesweeper-tileable.
+ */
+public class MoveBatch<T extends MinesweeperTileable> {
+    private List<T> tilesToClear;
+    private List<T> tilesToFlag;
+
+    /**
+     * @param tilesToClear the tiles to clear, in order. Never empty.
+     * @param tilesToFlag the tiles that certainly have a mine.
+     */
+    public MoveBatch(List<T> tilesToClear, List<T> tilesToFlag) {
+        this.tilesToClear = tilesToClear;
+        this.tilesToFlag = tilesToFlag;
+    }
+
+    /**
+     * A tile may already be cleared by the time it is reached, by the opening of an earlier tile of the batch.
+     * @return the tiles to clear, in order.
+     */
+    public List<T> getTilesToClear() {
+        return tilesToClear;
+    }
+
+    /**
+     * @return the tiles that certainly have a mine.
+     */
+    public List<T> getTilesToFlag() {
+        return tilesToFlag;
+    }
+}
@@ -1,6 +1,8 @@
 package src.main.java.minesweeper.bot.strategy;
 
 import src.main.java.minesweeper.bot.strategy.linear.LinearStrategy;
+import src.main.java.minesweeper.bot.strategy.probabilistic.LookaheadStrategy;
+import src.main.java.minesweeper.bot.strategy.probabilistic.MonteCarloStrategy;
 import src.main.java.minesweeper.bot.strategy.probabilistic.ProbabilisticStrategy;
 import src.main.java.minesweeper.bot.strategy.random.RandomStrategy;
 import src.main.java.minesweeper.logic.Tile;
@@ -13,7 +15,9 @@ import src.main.java.minesweeper.logic.Tile;
 public enum StrategyTypeOnTile {
     LINEAR(new LinearStrategy<Tile>()),
     RANDOM(new RandomStrategy<Tile>()),
-    PROBABILISTIC(new ProbabilisticStrategy<Tile>());
+    PROBABILISTIC(new ProbabilisticStrategy<Tile>()),
+    MONTE_CARLO(new MonteCarloStrategy<Tile>()),
+    LOOKAHEAD(new LookaheadStrategy<Tile>());
 
     private BotStrategy<Tile> strategy;
 
@@ -3,10 +3,21 @@ import java.math.BigInteger;
 
 /**
  * Class to calculate the number of combinations.
+ * Both the exact and the log-space variants are backed by lazily grown tables shared across solvers and games,
+ * so a lookup is an array access.
  * Source: https://stackoverflow.com/questions/25356014/calculate-cn-k-combinations-for-big-numbers-using-modinverse
  */
 public class Combinatorics {
 
+    /** Rows of Pascal's triangle are only memoized up to this size, larger rows are computed directly */
+    private static final int MAX_PASCAL_ROWS = 256;
+
+    /** pascal[n][k] = n C k, grown on demand and shared between all threads */
+    private static volatile BigInteger[][] pascal = {{BigInteger.ONE}};
+
+    /** logFactorials[n] = ln(n!), grown on demand and shared between all threads */
+    private static volatile double[] logFactorials = {0.0};
+
     /**
      * Cannot be instantiated.
      */
@@ -16,9 +27,66 @@ public class Combinatorics {
      * Computes the number of combinations of n choose k.
      * @param n the size of the set
      * @param k the size of the subsets
-     * @return number of subsets of size k from a set of size n.
+     * @return number of subsets of size k from a set of size n, 0 if k is negative or greater than n.
      */
     public static BigInteger combinations(int n, int k) {
+        if (k < 0 || k > n) {
+            return BigInteger.ZERO;
+        }
+        if (n < MAX_PASCAL_ROWS) {
+            BigInteger[][] table = pascal;
+            if (n >= table.length) {
+                table = growPascal(n);
+            }
+            return table[n][k];
+        }
+        return computeCombinations(n, k);
+    }
+
+    /**
+     * Computes one row of Pascal's triangle, for a caller that needs many entries of a row too large to memoize.
+     * Each entry is derived from the previous one, n C (k + 1) = (n C k) * (n - k) / (k + 1).
+     * @param n the size of the set
+     * @param maxK the largest size of subsets needed
+     * @return row[k] = n C k for k from 0 to maxK, 0 where k is greater than n.
+     */
+    public static BigInteger[] combinationsRow(int n, int maxK) {
+        BigInteger[] row = new BigInteger[maxK + 1];
+        BigInteger current = BigInteger.ONE;
+        for (int k = 0; k <= maxK; k++) {
+            row[k] = current;
+            current = k < n ? current.multiply(BigInteger.valueOf(n - k)).divide(BigInteger.valueOf(k + 1)) : BigInteger.ZERO;
+        }
+        return row;
+    }
+
+    /**
+     * Grows Pascal's triangle to hold at least row n.
+     * @return the new triangle.
+     */
+    private static synchronized BigInteger[][] growPascal(int n) {
+        BigInteger[][] table = pascal;
+        if (n < table.length) {
+            return table;
+        }
+        BigInteger[][] grown = new BigInteger[Math.min(Math.max(n + 1, table.length * 2), MAX_PASCAL_ROWS)][];
+        System.arraycopy(table, 0, grown, 0, table.length);
+        for (int i = table.length; i < grown.length; i++) {
+            grown[i] = new BigInteger[i + 1];
+            grown[i][0] = BigInteger.ONE;
+            grown[i][i] = BigInteger.ONE;
+            for (int j = 1; j < i; j++) {
+                grown[i][j] = grown[i - 1][j - 1].add(grown[i - 1][j]);
+            }
+        }
+        pascal = grown;
+        return grown;
+    }
+
+    /**
+     * Computes n choose k without memoization, for rows beyond the memoized triangle.
+     */
+    private static BigInteger computeCombinations(int n, int k) {
         BigInteger N = BigInteger.valueOf(n);
         BigInteger K = BigInteger.valueOf(k);
         // (n C k) and (n C (n-k)) are the same, so pick the smaller as k:
@@ -32,4 +100,49 @@ public class Combinatorics {
         }
         return result;
     }
+
+    /**
+     * Computes the natural logarithm of n choose k using a table of log-factorials.
+     * @param n the size of the set
+     * @param k the size of the subsets
+     * @return ln(n C k), negative infinity if k is negative or greater than n.
+     */
+    public static double logCombinations(int n, int k) {
+        if (k < 0 || k > n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double[] table = logFactorials;
+        if (n >= table.length) {
+            table = growLogFactorials(n);
+        }
+        return table[n] - table[k] - table[n - k];
+    }
+
+    /**
+     * Computes the natural logarithm of a count too large for a double.
+     * @param value a non-negative number
+     * @return ln(value), negative infinity for 0.
+     */
+    public static double log(BigInteger value) {
+        int shift = Math.max(0, value.bitLength() - 1000);
+        return Math.log(value.shiftRight(shift).doubleValue()) + shift * Math.log(2);
+    }
+
+    /**
+     * Grows the log-factorial table to hold at least n.
+     * @return the new table.
+     */
+    private static synchronized double[] growLogFactorials(int n) {
+        double[] table = logFactorials;
+        if (n < table.length) {
+            return table;
+        }
+        double[] grown = new double[Math.max(n + 1, table.length * 2)];
+        System.arraycopy(table, 0, grown, 0, table.length);
+        for (int i = table.length; i < grown.length; i++) {
+            grown[i] = grown[i - 1] + Math.log(i);
+        }
+        logFactorials = grown;
+        return grown;
+    }
 }
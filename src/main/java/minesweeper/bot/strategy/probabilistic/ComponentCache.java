@@ -0,0 +1,139 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the tallies of solved components, keyed by ComponentKey, with least-recently-used eviction.
+ * Small frontier patterns come back across moves and across games, so a cache shared by every solve of a strategy
+ * turns most of them into a lookup. Hits, misses and evictions are counted to help choose the capacity.
+ */
+public class ComponentCache {
+
+    /**
+     * The tallies of one component, with TileSets in canonical order. Entries are shared and must not be modified.
+     */
+    public static class Entry {
+        private BigInteger[] weights;
+        private BigInteger[][] weightedMines; // canonical index : m : sum
+        private double[] logWeights;
+        private double[][] logWeightedMines; // canonical index : m : sum
+
+        /**
+         * @param weights the exact mine-count distribution, or null in log-space.
+         * @param weightedMines the exact weighted mine counts by canonical index, or null in log-space.
+         * @param logWeights the log-space mine-count distribution, or null if exact.
+         * @param logWeightedMines the log-space weighted mine counts by canonical index, or null if exact.
+         */
+        public Entry(BigInteger[] weights, BigInteger[][] weightedMines, double[] logWeights, double[][] logWeightedMines) {
+            this.weights = weights;
+            this.weightedMines = weightedMines;
+            this.logWeights = logWeights;
+            this.logWeightedMines = logWeightedMines;
+        }
+
+        public BigInteger[] getWeights() {
+            return weights;
+        }
+
+        public BigInteger[][] getWeightedMines() {
+            return weightedMines;
+        }
+
+        public double[] getLogWeights() {
+            return logWeights;
+        }
+
+        public double[][] getLogWeightedMines() {
+            return logWeightedMines;
+        }
+    }
+
+    private int capacity;
+    private LinkedHashMap<ComponentKey, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity the largest number of components to keep.
+     */
+    public ComponentCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ComponentKey, Entry> eldest) {
+                if (size() > ComponentCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a component and counts a hit or a miss.
+     * @param key the key of the component.
+     * @return the tallies of the component, or null if it is not cached.
+     */
+    public synchronized Entry get(ComponentKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a component, evicting the least recently used one if the cache is full.
+     * @param key the key of the component.
+     * @param entry the complete tallies of the component.
+     */
+    public synchronized void put(ComponentKey key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Removes every component, keeping the counts.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the fraction of lookups that were hits, or 0 if there was none.
+     */
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ComponentCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+            entries.size(), capacity, hits, misses, evictions, hitRate());
+    }
+}
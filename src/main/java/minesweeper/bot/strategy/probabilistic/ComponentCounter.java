@@ -0,0 +1,18 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * A backend that counts the solutions of a component, one per CountingEngine.
+ * Every backend stores the same tally in the component, so the probabilities do not depend on the backend.
+ * @param <T> the type of tile to operate on, must be minesweeper-tileable.
+ */
+public interface ComponentCounter<T extends MinesweeperTileable> {
+
+    /**
+     * Counts the solutions of a component and stores the tally in the component.
+     * @param component the component to count.
+     * @return true if the tally is complete, false if this backend cannot count the component or the budget ran out.
+     */
+    boolean count(FrontierComponent<T> component);
+}
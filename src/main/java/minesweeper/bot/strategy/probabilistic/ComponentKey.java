@@ -0,0 +1,153 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Position-independent encoding of a component, used as the key of the ComponentCache.
+ * The TileSets are put in a canonical order, and the key lists their sizes followed by every rule as its result and
+ * the canonical indices of its TileSets, along with the mine range of the tallies. Two components with equal keys therefore have the same solutions, with the
+ * TileSets matched by canonical index.
+ * The order sorts TileSets by a color refined over a few rounds from their size and the rules around them, and breaks
+ * ties by board order. The same pattern elsewhere on the board gets the same key, while a rotated or mirrored one may
+ * not, which only costs a cache miss.
+ */
+public class ComponentKey {
+    private static final int REFINEMENT_ROUNDS = 3;
+
+    private int[] encoding;
+    private int hash;
+
+    private ComponentKey(int[] encoding) {
+        this.encoding = encoding;
+        this.hash = Arrays.hashCode(encoding);
+    }
+
+    /**
+     * Puts the TileSets of a component in canonical order.
+     * @param component the component to order.
+     * @param boardOrder the index of each TileSet in the row-major order of the board, to break ties.
+     * @return the TileSets of the component in canonical order.
+     */
+    public static <T extends MinesweeperTileable> List<TileSet<T>> canonicalOrder(FrontierComponent<T> component, Map<TileSet<T>, Integer> boardOrder) {
+        List<TileSet<T>> tileSets = component.getTileSets();
+        List<TileSetRule<T>> rules = component.getRules();
+        Map<TileSet<T>, Long> colors = new HashMap<>();
+        Map<TileSet<T>, List<TileSetRule<T>>> rulesByTileSet = new HashMap<>();
+        for (TileSet<T> tileSet : tileSets) {
+            colors.put(tileSet, (long) tileSet.size());
+            rulesByTileSet.put(tileSet, new ArrayList<>());
+        }
+        for (TileSetRule<T> rule : rules) {
+            for (TileSet<T> tileSet : rule.getTileSets()) {
+                rulesByTileSet.get(tileSet).add(rule);
+            }
+        }
+        for (int round = 0; round < REFINEMENT_ROUNDS; round++) {
+            // a rule is colored by its result and the sum of the colors of its TileSets
+            Map<TileSetRule<T>, Long> ruleColors = new HashMap<>();
+            for (TileSetRule<T> rule : rules) {
+                long sum = 0;
+                for (TileSet<T> tileSet : rule.getTileSets()) {
+                    sum += mix(colors.get(tileSet));
+                }
+                ruleColors.put(rule, mix(sum * 31 + rule.getResult()));
+            }
+            // a TileSet by its previous color and the sum of the colors of its rules
+            Map<TileSet<T>, Long> newColors = new HashMap<>();
+            for (TileSet<T> tileSet : tileSets) {
+                long sum = 0;
+                for (TileSetRule<T> rule : rulesByTileSet.get(tileSet)) {
+                    sum += mix(ruleColors.get(rule));
+                }
+                newColors.put(tileSet, mix(colors.get(tileSet) * 31 + sum));
+            }
+            colors = newColors;
+        }
+        final Map<TileSet<T>, Long> finalColors = colors;
+        List<TileSet<T>> ordered = new ArrayList<>(tileSets);
+        ordered.sort(Comparator.comparingLong((TileSet<T> tileSet) -> finalColors.get(tileSet)).thenComparingInt(boardOrder::get));
+        return ordered;
+    }
+
+    /**
+     * Spreads the bits of a value, so sums of colors rarely collide.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * @param canonicalTileSets the TileSets of the component, in canonical order.
+     * @param rules the rules of the component.
+     * @param totalMines the total number of mines in the game, which bounds the length of the tally.
+     * @param minMines the fewest mines a counted solution may have, see FrontierComponent.setMineRange().
+     * @param maxMines the most mines a counted solution may have.
+     * @param weightingMode the weighting mode of the tally.
+     * @return the key of the component.
+     */
+    public static <T extends MinesweeperTileable> ComponentKey of(List<TileSet<T>> canonicalTileSets, List<TileSetRule<T>> rules, int totalMines, int minMines, int maxMines, WeightingMode weightingMode) {
+        Map<TileSet<T>, Integer> indices = new HashMap<>();
+        int numTiles = 0;
+        for (int i = 0; i < canonicalTileSets.size(); i++) {
+            indices.put(canonicalTileSets.get(i), i);
+            numTiles += canonicalTileSets.get(i).size();
+        }
+        List<int[]> encodedRules = new ArrayList<>();
+        int length = 6 + canonicalTileSets.size();
+        for (TileSetRule<T> rule : rules) {
+            int[] encodedRule = new int[rule.numTileSets() + 2];
+            encodedRule[0] = rule.getResult();
+            encodedRule[1] = rule.numTileSets();
+            for (int j = 0; j < rule.numTileSets(); j++) {
+                encodedRule[j + 2] = indices.get(rule.getTileSets().get(j));
+            }
+            Arrays.sort(encodedRule, 2, encodedRule.length);
+            encodedRules.add(encodedRule);
+            length += encodedRule.length;
+        }
+        encodedRules.sort(Arrays::compare);
+
+        int[] encoding = new int[length];
+        int k = 0;
+        encoding[k++] = weightingMode.ordinal();
+        encoding[k++] = Math.min(totalMines, numTiles);
+        // a range covering every tile does not prune anything, so it always encodes the same
+        encoding[k++] = Math.max(0, minMines);
+        encoding[k++] = Math.min(maxMines, Math.min(totalMines, numTiles));
+        encoding[k++] = canonicalTileSets.size();
+        for (TileSet<T> tileSet : canonicalTileSets) {
+            encoding[k++] = tileSet.size();
+        }
+        encoding[k++] = encodedRules.size();
+        for (int[] encodedRule : encodedRules) {
+            System.arraycopy(encodedRule, 0, encoding, k, encodedRule.length);
+            k += encodedRule.length;
+        }
+        return new ComponentKey(encoding);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ComponentKey)) {
+            return false;
+        }
+        return hash == ((ComponentKey) other).hash && Arrays.equals(encoding, ((ComponentKey) other).encoding);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,670 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Exact counting engine with learning, as an alternative to SolutionSearch for dense components, where the search
+ * walks into the same dead ends in many subtrees.
+ * Every rule is a cardinality constraint over a bitset of TileSets, and assignments propagate through the rules like
+ * in ResultNode. When a rule is violated, the decisions that led to it are found by walking back the rules that forced
+ * each assignment, and kept as a learned conflict clause: any later branch that makes the same decisions is cut as
+ * soon as it does. After each branch, the unassigned TileSets are split into the components left by the open rules,
+ * which are counted independently and cached by their TileSets and what is left of the results of their rules, so a
+ * subproblem reached again from another branch, including one without solutions, is only counted once.
+ * Counts are exact, and converted to log space at the end if asked to. Gives the same tallies as SolutionSearch.
+ */
+public class ConflictDrivenCounter<T extends MinesweeperTileable> implements ComponentCounter<T> {
+
+    /** Longer learned clauses are dropped, they rarely cut anything again */
+    private static final int MAX_CLAUSE_LENGTH = 12;
+
+    /** Learned clauses kept per component */
+    private static final int MAX_CLAUSES = 1 << 12;
+
+    /** Subproblems cached per component */
+    private static final int MAX_CACHED = 1 << 16;
+
+    /** Reason of an assignment made by branching */
+    private static final int DECISION = -1;
+
+    private int maxMines;
+    private WeightingMode weightingMode;
+    private SearchBudget budget;
+    private SearchBudget.NodeCounter nodes; // the nodes of the current count
+
+    // structure of the component being counted, TileSets and rules by index in the component
+    private int numVars;
+    private int numWords;
+    private int cap; // length of the tallies minus one
+    private int[] sizes;
+    private int[] results;
+    private int[][] ruleVars; // rule : TileSets in it
+    private int[][] varRules; // TileSet : rules containing it
+    private long[][] ruleMasks; // rule : bitset of its TileSets
+
+    // current assignment, undone in trail order
+    private int[] alphas; // TileSet : alpha, or -1 if unassigned
+    private int[] reasons; // TileSet : rule that forced it, or DECISION
+    private int[] trailPositions; // TileSet : position in the trail
+    private int[] trail;
+    private int trailSize;
+    private long[] unassigned;
+    private int[] assignedSums; // rule : sum of the alphas of its assigned TileSets
+    private int[] freeTiles; // rule : number of tiles in its unassigned TileSets
+    private int[] numFree; // rule : number of unassigned TileSets
+
+    // rules to check, and the cause of the last conflict
+    private int[] queue;
+    private boolean[] queued;
+    private int queueSize;
+    private int conflictRule;
+    private int[] conflictClause;
+
+    // learned clauses, as TileSet and alpha pairs
+    private List<int[]> clauses;
+    private List<List<int[]>> clausesOfVar;
+
+    private Map<SubproblemKey, Count> cache;
+
+    /**
+     * @param maxMines the total number of mines in the game, no TileSet can have more.
+     * @param weightingMode how to tally solutions.
+     * @param budget the budget shared by every search of the solve, one node per subproblem counted.
+     */
+    public ConflictDrivenCounter(int maxMines, WeightingMode weightingMode, SearchBudget budget) {
+        this.maxMines = maxMines;
+        this.weightingMode = weightingMode;
+        this.budget = budget;
+    }
+
+    /**
+     * Counts the solutions of a component and stores the tally in the component.
+     * @param component the component to count.
+     * @return true if the tally was stored, false if the budget ran out, in which case the component is left untouched.
+     */
+    @Override
+    public boolean count(FrontierComponent<T> component) {
+        init(component);
+        long[] allVars = new long[numWords];
+        for (int v = 0; v < numVars; v++) {
+            allVars[v >> 6] |= 1L << v;
+        }
+        Count total = new Count(allVars, cap + 1, numVars);
+        // rules that are already tight force their TileSets before any branch
+        for (int r = 0; r < results.length; r++) {
+            enqueue(r);
+        }
+        nodes = budget.newNodeCounter();
+        boolean counted = !propagate() || addBranch(total, allVars, 0);
+        nodes.flush();
+        if (!counted) {
+            return false;
+        }
+        undo(0);
+        storeTally(component, total);
+        return true;
+    }
+
+    /**
+     * Indexes the TileSets and rules of a component and resets the assignment, the clauses and the cache.
+     */
+    private void init(FrontierComponent<T> component) {
+        List<TileSet<T>> tileSets = component.getTileSets();
+        List<TileSetRule<T>> rules = component.getRules();
+        numVars = tileSets.size();
+        numWords = (numVars + 63) >> 6;
+        Map<TileSet<T>, Integer> ids = new HashMap<>();
+        sizes = new int[numVars];
+        int numTiles = 0;
+        for (int v = 0; v < numVars; v++) {
+            ids.put(tileSets.get(v), v);
+            sizes[v] = tileSets.get(v).size();
+            numTiles += sizes[v];
+        }
+        cap = Math.min(maxMines, numTiles);
+
+        int numRules = rules.size();
+        results = new int[numRules];
+        ruleVars = new int[numRules][];
+        ruleMasks = new long[numRules][numWords];
+        int[] degrees = new int[numVars];
+        for (int r = 0; r < numRules; r++) {
+            TileSetRule<T> rule = rules.get(r);
+            results[r] = rule.getResult();
+            ruleVars[r] = new int[rule.numTileSets()];
+            for (int i = 0; i < ruleVars[r].length; i++) {
+                int v = ids.get(rule.getTileSets().get(i));
+                ruleVars[r][i] = v;
+                ruleMasks[r][v >> 6] |= 1L << v;
+                degrees[v]++;
+            }
+        }
+        varRules = new int[numVars][];
+        for (int v = 0; v < numVars; v++) {
+            varRules[v] = new int[degrees[v]];
+            degrees[v] = 0;
+        }
+        for (int r = 0; r < numRules; r++) {
+            for (int v : ruleVars[r]) {
+                varRules[v][degrees[v]++] = r;
+            }
+        }
+
+        alphas = new int[numVars];
+        Arrays.fill(alphas, -1);
+        reasons = new int[numVars];
+        trailPositions = new int[numVars];
+        trail = new int[numVars];
+        trailSize = 0;
+        unassigned = new long[numWords];
+        for (int v = 0; v < numVars; v++) {
+            unassigned[v >> 6] |= 1L << v;
+        }
+        assignedSums = new int[numRules];
+        freeTiles = new int[numRules];
+        numFree = new int[numRules];
+        for (int r = 0; r < numRules; r++) {
+            for (int v : ruleVars[r]) {
+                freeTiles[r] += sizes[v];
+            }
+            numFree[r] = ruleVars[r].length;
+        }
+        queue = new int[numRules];
+        queued = new boolean[numRules];
+        queueSize = 0;
+        clauses = new ArrayList<>();
+        clausesOfVar = new ArrayList<>();
+        for (int v = 0; v < numVars; v++) {
+            clausesOfVar.add(new ArrayList<>());
+        }
+        cache = new HashMap<>();
+    }
+
+    /**
+     * Counts the solutions of a set of unassigned TileSets connected by open rules. The result only depends on the
+     * TileSets and on what is left of the results of their rules, so it is cached by both.
+     * @param vars the bitset of the TileSets
+     * @return the count, or null if the budget ran out.
+     */
+    private Count countComponent(long[] vars) {
+        SubproblemKey key = keyOf(vars);
+        Count cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (!nodes.countNode()) {
+            return null;
+        }
+        int numTiles = 0;
+        for (int v = nextVar(vars, 0); v >= 0; v = nextVar(vars, v + 1)) {
+            numTiles += sizes[v];
+        }
+        Count count = new Count(vars, Math.min(cap, numTiles) + 1, numVars);
+        int v = chooseVar(vars);
+        int mark = trailSize;
+        for (int alpha = 0; alpha <= sizes[v]; alpha++) {
+            if (assign(v, alpha, DECISION) && propagate()) {
+                if (!addBranch(count, vars, mark)) {
+                    undo(mark);
+                    return null;
+                }
+            } else {
+                budget.countPruned();
+                learn();
+            }
+            undo(mark);
+        }
+        if (cache.size() < MAX_CACHED) {
+            cache.put(key, count);
+        }
+        return count;
+    }
+
+    /**
+     * Adds the solutions of the current branch to the count of a component: the assignments made since the branch
+     * started, times the solutions of every component left among its unassigned TileSets.
+     * @param count the count of the component the branch belongs to
+     * @param vars the bitset of the TileSets of the component
+     * @param mark the size of the trail when the branch started
+     * @return false if the budget ran out.
+     */
+    private boolean addBranch(Count count, long[] vars, int mark) {
+        long[] rest = new long[numWords];
+        for (int w = 0; w < numWords; w++) {
+            rest[w] = vars[w] & unassigned[w];
+        }
+        List<long[]> parts = split(rest);
+        Count[] subcounts = new Count[parts.size()];
+        for (int i = 0; i < subcounts.length; i++) {
+            subcounts[i] = countComponent(parts.get(i));
+            if (subcounts[i] == null) {
+                return false;
+            }
+            if (subcounts[i].isZero()) {
+                return true;
+            }
+        }
+
+        int mines = 0;
+        BigInteger factor = BigInteger.ONE;
+        for (int t = mark; t < trailSize; t++) {
+            int v = trail[t];
+            mines += alphas[v];
+            factor = factor.multiply(Combinatorics.combinations(sizes[v], alphas[v]));
+        }
+        int length = count.weights.length - mines;
+        if (length <= 0) {
+            return true;
+        }
+
+        // prefix[i] is the distribution of subcomponents [0, i), suffix[i] is that of subcomponents [i, n)
+        int n = subcounts.length;
+        BigInteger[][] prefix = new BigInteger[n + 1][];
+        BigInteger[][] suffix = new BigInteger[n + 1][];
+        prefix[0] = new BigInteger[]{BigInteger.ONE};
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = convolve(prefix[i], subcounts[i].weights, length);
+        }
+        suffix[n] = new BigInteger[]{BigInteger.ONE};
+        for (int i = n - 1; i >= 0; i--) {
+            suffix[i] = convolve(subcounts[i].weights, suffix[i + 1], length);
+        }
+
+        BigInteger[] all = prefix[n];
+        addShifted(count.weights, all, mines, factor);
+        for (int t = mark; t < trailSize; t++) {
+            int v = trail[t];
+            if (alphas[v] > 0) {
+                addShifted(count.weightedMines[v], all, mines, factor.multiply(BigInteger.valueOf(alphas[v])));
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            BigInteger[] others = convolve(prefix[i], suffix[i + 1], length);
+            Count subcount = subcounts[i];
+            for (int v = nextVar(subcount.vars, 0); v >= 0; v = nextVar(subcount.vars, v + 1)) {
+                addShifted(count.weightedMines[v], convolve(subcount.weightedMines[v], others, length), mines, factor);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a set of unassigned TileSets into the components connected by their rules, a word of TileSets at a time.
+     * @return the bitsets of the components.
+     */
+    private List<long[]> split(long[] vars) {
+        List<long[]> parts = new ArrayList<>();
+        long[] remaining = vars.clone();
+        int[] stack = new int[numVars];
+        for (int start = nextVar(remaining, 0); start >= 0; start = nextVar(remaining, start + 1)) {
+            long[] part = new long[numWords];
+            part[start >> 6] |= 1L << start;
+            remaining[start >> 6] &= ~(1L << start);
+            int stackSize = 0;
+            stack[stackSize++] = start;
+            while (stackSize > 0) {
+                int v = stack[--stackSize];
+                for (int r : varRules[v]) {
+                    long[] mask = ruleMasks[r];
+                    for (int w = 0; w < numWords; w++) {
+                        long reached = mask[w] & remaining[w];
+                        if (reached != 0) {
+                            part[w] |= reached;
+                            remaining[w] &= ~reached;
+                            while (reached != 0) {
+                                stack[stackSize++] = (w << 6) + Long.numberOfTrailingZeros(reached);
+                                reached &= reached - 1;
+                            }
+                        }
+                    }
+                }
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    /**
+     * Picks the TileSet with the lowest ratio of its number of alphas to the number of its rules that are still open
+     * to other TileSets, see VariableOrdering.MIN_DOMAIN_OVER_DEGREE. Ties go to the lowest index.
+     */
+    private int chooseVar(long[] vars) {
+        int best = -1;
+        long bestPriority = Long.MAX_VALUE;
+        for (int v = nextVar(vars, 0); v >= 0; v = nextVar(vars, v + 1)) {
+            int degree = 0;
+            for (int r : varRules[v]) {
+                if (numFree[r] > 1) {
+                    degree++;
+                }
+            }
+            long priority = ((long) (sizes[v] + 1) << 32) / Math.max(1, degree);
+            if (priority < bestPriority) {
+                best = v;
+                bestPriority = priority;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Assigns an alpha to a TileSet and queues its rules to be checked.
+     * @return false if a learned clause is violated.
+     */
+    private boolean assign(int v, int alpha, int reason) {
+        alphas[v] = alpha;
+        reasons[v] = reason;
+        trailPositions[v] = trailSize;
+        trail[trailSize++] = v;
+        unassigned[v >> 6] &= ~(1L << v);
+        for (int r : varRules[v]) {
+            assignedSums[r] += alpha;
+            freeTiles[r] -= sizes[v];
+            numFree[r]--;
+            enqueue(r);
+        }
+        for (int[] clause : clausesOfVar.get(v)) {
+            if (holds(clause)) {
+                conflictRule = -1;
+                conflictClause = clause;
+                clearQueue();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every TileSet of the clause has the alpha of the clause.
+     */
+    private boolean holds(int[] clause) {
+        for (int i = 0; i < clause.length; i += 2) {
+            if (alphas[clause[i]] != clause[i + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the queued rules until none is left. A rule left with no room, or no mines, for its unassigned TileSets
+     * forces them, as does a rule with a single unassigned TileSet.
+     * @return false if a rule or a learned clause is violated.
+     */
+    private boolean propagate() {
+        while (queueSize > 0) {
+            int r = queue[--queueSize];
+            queued[r] = false;
+            int residual = results[r] - assignedSums[r];
+            if (residual < 0 || residual > freeTiles[r]) {
+                conflictRule = r;
+                conflictClause = null;
+                clearQueue();
+                return false;
+            }
+            if (numFree[r] == 0) {
+                continue;
+            }
+            boolean single = numFree[r] == 1;
+            if (residual == 0 || residual == freeTiles[r] || single) {
+                boolean full = residual == freeTiles[r];
+                for (int v : ruleVars[r]) {
+                    if (alphas[v] < 0 && !assign(v, single ? residual : full ? sizes[v] : 0, r)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void enqueue(int r) {
+        if (!queued[r]) {
+            queued[r] = true;
+            queue[queueSize++] = r;
+        }
+    }
+
+    private void clearQueue() {
+        while (queueSize > 0) {
+            queued[queue[--queueSize]] = false;
+        }
+    }
+
+    /**
+     * Walks back from the last conflict to the decisions that caused it, through the rule that forced each assignment
+     * on the way, and keeps them as a clause if it is short enough.
+     */
+    private void learn() {
+        if (clauses.size() >= MAX_CLAUSES) {
+            return;
+        }
+        boolean[] seen = new boolean[numVars];
+        int[] stack = new int[numVars];
+        int stackSize = 0;
+        int[] start = conflictRule >= 0 ? ruleVars[conflictRule] : varsOf(conflictClause);
+        for (int v : start) {
+            if (alphas[v] >= 0 && !seen[v]) {
+                seen[v] = true;
+                stack[stackSize++] = v;
+            }
+        }
+        List<Integer> decisions = new ArrayList<>();
+        while (stackSize > 0) {
+            int v = stack[--stackSize];
+            if (reasons[v] == DECISION) {
+                decisions.add(v);
+                if (decisions.size() > MAX_CLAUSE_LENGTH) {
+                    return;
+                }
+                continue;
+            }
+            // the alpha was forced by the TileSets of its rule assigned before it
+            for (int u : ruleVars[reasons[v]]) {
+                if (alphas[u] >= 0 && !seen[u] && trailPositions[u] < trailPositions[v]) {
+                    seen[u] = true;
+                    stack[stackSize++] = u;
+                }
+            }
+        }
+        if (decisions.isEmpty()) {
+            return;
+        }
+        int[] clause = new int[decisions.size() * 2];
+        for (int i = 0; i < decisions.size(); i++) {
+            clause[2 * i] = decisions.get(i);
+            clause[2 * i + 1] = alphas[decisions.get(i)];
+        }
+        clauses.add(clause);
+        for (int v : decisions) {
+            clausesOfVar.get(v).add(clause);
+        }
+    }
+
+    private static int[] varsOf(int[] clause) {
+        int[] vars = new int[clause.length / 2];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = clause[2 * i];
+        }
+        return vars;
+    }
+
+    /**
+     * Unassigns every TileSet assigned since the trail had the given size.
+     */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int v = trail[--trailSize];
+            for (int r : varRules[v]) {
+                assignedSums[r] -= alphas[v];
+                freeTiles[r] += sizes[v];
+                numFree[r]++;
+            }
+            unassigned[v >> 6] |= 1L << v;
+            alphas[v] = -1;
+        }
+    }
+
+    /**
+     * @return the key of a subproblem: its TileSets, and what is left of the result of every rule over them, in rule
+     *         order.
+     */
+    private SubproblemKey keyOf(long[] vars) {
+        int[] residuals = new int[results.length];
+        int numResiduals = 0;
+        for (int r = 0; r < results.length; r++) {
+            for (int w = 0; w < numWords; w++) {
+                if ((ruleMasks[r][w] & vars[w]) != 0) {
+                    residuals[numResiduals++] = results[r] - assignedSums[r];
+                    break;
+                }
+            }
+        }
+        return new SubproblemKey(vars, Arrays.copyOf(residuals, numResiduals));
+    }
+
+    /**
+     * @return the index of the first TileSet of the bitset at or after from, or -1 if there is none.
+     */
+    private int nextVar(long[] vars, int from) {
+        int w = from >> 6;
+        if (w >= numWords) {
+            return -1;
+        }
+        long word = vars[w] & (-1L << (from & 63));
+        while (word == 0) {
+            if (++w == numWords) {
+                return -1;
+            }
+            word = vars[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Convolves two mine-count distributions, dropping mine counts from length on.
+     */
+    private static BigInteger[] convolve(BigInteger[] a, BigInteger[] b, int length) {
+        BigInteger[] result = zeros(Math.min(a.length + b.length - 1, length));
+        for (int i = 0; i < a.length && i < result.length; i++) {
+            if (a[i].signum() == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length && i + j < result.length; j++) {
+                if (b[j].signum() != 0) {
+                    result[i + j] = result[i + j].add(a[i].multiply(b[j]));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds factor * source[m] to target[m + shift] for every m that fits in the target.
+     */
+    private static void addShifted(BigInteger[] target, BigInteger[] source, int shift, BigInteger factor) {
+        for (int m = 0; m < source.length && m + shift < target.length; m++) {
+            if (source[m].signum() != 0) {
+                target[m + shift] = target[m + shift].add(source[m].multiply(factor));
+            }
+        }
+    }
+
+    private static BigInteger[] zeros(int length) {
+        BigInteger[] zeros = new BigInteger[length];
+        Arrays.fill(zeros, BigInteger.ZERO);
+        return zeros;
+    }
+
+    /**
+     * Stores the count of the whole component in it, in the weighting mode of this counter.
+     */
+    private void storeTally(FrontierComponent<T> component, Count total) {
+        List<TileSet<T>> tileSets = component.getTileSets();
+        if (weightingMode == WeightingMode.EXACT) {
+            Map<TileSet<T>, BigInteger[]> weightedMines = new HashMap<>();
+            for (int v = 0; v < numVars; v++) {
+                weightedMines.put(tileSets.get(v), total.weightedMines[v]);
+            }
+            component.setTally(total.weights, weightedMines);
+        } else {
+            Map<TileSet<T>, double[]> logWeightedMines = new HashMap<>();
+            for (int v = 0; v < numVars; v++) {
+                logWeightedMines.put(tileSets.get(v), toLogSpace(total.weightedMines[v]));
+            }
+            component.setLogTally(toLogSpace(total.weights), logWeightedMines);
+        }
+    }
+
+    private static double[] toLogSpace(BigInteger[] weights) {
+        double[] logWeights = new double[weights.length];
+        for (int m = 0; m < weights.length; m++) {
+            logWeights[m] = Combinatorics.log(weights[m]);
+        }
+        return logWeights;
+    }
+
+    /**
+     * The solutions of a set of TileSets, by number of mines among them.
+     */
+    private static class Count {
+        private long[] vars;
+        private BigInteger[] weights;
+        private BigInteger[][] weightedMines; // TileSet : weighted mine counts, null for TileSets outside of vars
+
+        private Count(long[] vars, int length, int numVars) {
+            this.vars = vars;
+            this.weights = zeros(length);
+            this.weightedMines = new BigInteger[numVars][];
+            for (int w = 0; w < vars.length; w++) {
+                for (long word = vars[w]; word != 0; word &= word - 1) {
+                    weightedMines[(w << 6) + Long.numberOfTrailingZeros(word)] = zeros(length);
+                }
+            }
+        }
+
+        private boolean isZero() {
+            for (BigInteger weight : weights) {
+                if (weight.signum() != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A set of TileSets and what is left of the results of their rules.
+     */
+    private static class SubproblemKey {
+        private long[] vars;
+        private int[] residuals;
+        private int hash;
+
+        private SubproblemKey(long[] vars, int[] residuals) {
+            this.vars = vars;
+            this.residuals = residuals;
+            this.hash = 31 * Arrays.hashCode(vars) + Arrays.hashCode(residuals);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SubproblemKey)) {
+                return false;
+            }
+            SubproblemKey key = (SubproblemKey) other;
+            return hash == key.hash && Arrays.equals(vars, key.vars) && Arrays.equals(residuals, key.residuals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
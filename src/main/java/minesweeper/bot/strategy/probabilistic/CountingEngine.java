@@ -0,0 +1,21 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * How the solutions of each component are counted, each engine is a ComponentCounter. All engines give the same
+ * probabilities.
+ */
+public enum CountingEngine {
+    /** Backtracking over the solution tree, see SolutionSearch. Cost grows with the number of solutions. */
+    BACKTRACKING,
+    /**
+     * Dynamic programming along the frontier, see FrontierSweep. Cost grows with the number of rules open at once,
+     * so long, thin components are counted in near-linear time. Components too wide to sweep are backtracked.
+     */
+    FRONTIER_SWEEP,
+    /**
+     * Branching with learned conflict clauses and cached subcomponents, see ConflictDrivenCounter. Cost grows with the
+     * number of distinct subproblems, so dense components whose branches keep reaching the same ones are counted faster
+     * than by backtracking.
+     */
+    CONFLICT_DRIVEN
+}
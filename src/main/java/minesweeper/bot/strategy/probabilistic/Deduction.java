@@ -0,0 +1,185 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Cheap deterministic pass over the (non-global) rules, run before the full enumeration.
+ * Finds TileSets whose alpha is certain using two kinds of reasoning, repeated until nothing new is found:
+ * <ul>
+ * <li> single-rule saturation: a rule with a result of 0 has no mines, a rule with as many mines as tiles is full,
+ *      and a rule with a single TileSet gives its alpha
+ * <li> subset subtraction: if the TileSets of rule A are a subset of those of rule B, the TileSets of B that are not
+ *      in A form a new rule whose result is the difference, which is then saturated
+ * </ul>
+ * Known alphas are substituted into every rule between rounds.
+ */
+public class Deduction<T extends MinesweeperTileable> {
+    private List<TileSetRule<T>> rules;
+    private Map<TileSet<T>, Integer> known; // TileSet : alpha
+    private boolean contradiction;
+
+    /**
+     * @param rules the rules to deduce from, excluding the global rule.
+     */
+    public Deduction(List<TileSetRule<T>> rules) {
+        this.rules = rules;
+        this.known = new HashMap<>();
+    }
+
+    /**
+     * Runs the deduction. If the rules contradict each other, nothing is deduced.
+     */
+    public void deduce() {
+        List<Set<TileSet<T>>> ruleTileSets = new ArrayList<>();
+        List<Integer> results = new ArrayList<>();
+        for (TileSetRule<T> rule : rules) {
+            ruleTileSets.add(new HashSet<>(rule.getTileSets()));
+            results.add(rule.getResult());
+        }
+        boolean changed = true;
+        while (changed && !contradiction) {
+            changed = false;
+            substituteKnown(ruleTileSets, results);
+            for (int i = 0; i < ruleTileSets.size(); i++) {
+                changed |= saturate(ruleTileSets.get(i), results.get(i));
+            }
+            if (changed) {
+                continue;
+            }
+            changed = subtractSubsets(ruleTileSets, results);
+        }
+        if (contradiction) {
+            known.clear();
+        }
+    }
+
+    /**
+     * Removes known TileSets from every rule and subtracts their alphas from the results.
+     */
+    private void substituteKnown(List<Set<TileSet<T>>> ruleTileSets, List<Integer> results) {
+        for (int i = 0; i < ruleTileSets.size(); i++) {
+            int result = results.get(i);
+            Set<TileSet<T>> tileSets = ruleTileSets.get(i);
+            for (TileSet<T> tileSet : new ArrayList<>(tileSets)) {
+                Integer alpha = known.get(tileSet);
+                if (alpha != null) {
+                    result -= alpha;
+                    tileSets.remove(tileSet);
+                }
+            }
+            results.set(i, result);
+        }
+    }
+
+    /**
+     * For every pair of rules where one's TileSets are a proper subset of the other's, saturates the difference.
+     * Only pairs sharing a TileSet can be subsets, so candidates are found through a TileSet-to-rule index.
+     * @return true if a new alpha became known.
+     */
+    private boolean subtractSubsets(List<Set<TileSet<T>>> ruleTileSets, List<Integer> results) {
+        Map<TileSet<T>, List<Integer>> rulesByTileSet = new HashMap<>();
+        for (int i = 0; i < ruleTileSets.size(); i++) {
+            for (TileSet<T> tileSet : ruleTileSets.get(i)) {
+                rulesByTileSet.computeIfAbsent(tileSet, k -> new ArrayList<>()).add(i);
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < ruleTileSets.size(); i++) {
+            Set<TileSet<T>> subset = ruleTileSets.get(i);
+            if (subset.isEmpty()) {
+                continue;
+            }
+            for (int j : rulesByTileSet.get(subset.iterator().next())) {
+                Set<TileSet<T>> superset = ruleTileSets.get(j);
+                if (i == j || superset.size() <= subset.size() || !superset.containsAll(subset)) {
+                    continue;
+                }
+                Set<TileSet<T>> difference = new HashSet<>(superset);
+                difference.removeAll(subset);
+                changed |= saturate(difference, results.get(j) - results.get(i));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Applies single-rule saturation to the rule (sum of alphas of tileSets = result).
+     * @return true if a new alpha became known.
+     */
+    private boolean saturate(Set<TileSet<T>> tileSets, int result) {
+        int numTiles = 0;
+        for (TileSet<T> tileSet : tileSets) {
+            numTiles += tileSet.size();
+        }
+        if (result < 0 || result > numTiles) {
+            contradiction = true;
+            return false;
+        }
+        if (tileSets.isEmpty()) {
+            return false;
+        }
+        if (tileSets.size() == 1) {
+            return assign(tileSets.iterator().next(), result);
+        }
+        boolean changed = false;
+        if (result == 0) {
+            for (TileSet<T> tileSet : tileSets) {
+                changed |= assign(tileSet, 0);
+            }
+        } else if (result == numTiles) {
+            for (TileSet<T> tileSet : tileSets) {
+                changed |= assign(tileSet, tileSet.size());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return true if the alpha was not known before.
+     */
+    private boolean assign(TileSet<T> tileSet, int alpha) {
+        Integer previous = known.put(tileSet, alpha);
+        if (previous != null && previous != alpha) {
+            contradiction = true;
+        }
+        return previous == null;
+    }
+
+    /**
+     * Always call after deduce().
+     * @param tileSets the TileSets to filter, in the order to keep.
+     * @return the given TileSets that certainly have no mines.
+     */
+    public List<TileSet<T>> safeTileSets(List<TileSet<T>> tileSets) {
+        List<TileSet<T>> safe = new ArrayList<>();
+        for (TileSet<T> tileSet : tileSets) {
+            Integer alpha = known.get(tileSet);
+            if (alpha != null && alpha == 0) {
+                safe.add(tileSet);
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * Always call after deduce().
+     * @param tileSets the TileSets to filter, in the order to keep.
+     * @return the given TileSets that certainly have a mine in every tile.
+     */
+    public List<TileSet<T>> minedTileSets(List<TileSet<T>> tileSets) {
+        List<TileSet<T>> mined = new ArrayList<>();
+        for (TileSet<T> tileSet : tileSets) {
+            Integer alpha = known.get(tileSet);
+            if (alpha != null && alpha == tileSet.size()) {
+                mined.add(tileSet);
+            }
+        }
+        return mined;
+    }
+}
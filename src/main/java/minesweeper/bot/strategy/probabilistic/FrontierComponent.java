@@ -0,0 +1,321 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * A connected component of the constraint graph, along with the tallies of its solutions.
+ * Two TileSets are in the same component if they share a (non-global) TileSetRule, directly or transitively.
+ * Components are independent of each other except through the global rule, so each is enumerated on its own
+ * and the results are combined by convolving their mine-count distributions.
+ */
+public class FrontierComponent<T extends MinesweeperTileable> {
+    private List<TileSet<T>> tileSets;
+    private List<TileSetRule<T>> rules;
+    private SolutionSet<T> solutionSet;
+
+    // exact tallies, see WeightingMode.EXACT
+    /** weights[m] is the number of mine configurations in this component with exactly m mines */
+    private BigInteger[] weights;
+    /** weightedMines.get(tileSet)[m] is the sum over solutions with m mines of (configurations * alpha) */
+    private Map<TileSet<T>, BigInteger[]> weightedMines;
+
+    // the same tallies as natural logarithms, see WeightingMode.LOG_SPACE
+    private double[] logWeights;
+    private Map<TileSet<T>, double[]> logWeightedMines;
+
+    // the tallies only count the solutions with a number of mines in [minMines, maxMines]
+    private int minMines;
+    private int maxMines;
+
+    /**
+     * Initializes an empty component.
+     */
+    public FrontierComponent() {
+        tileSets = new ArrayList<>();
+        rules = new ArrayList<>();
+        minMines = 0;
+        maxMines = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param tileSet the TileSet to add to this component.
+     */
+    public void addTileSet(TileSet<T> tileSet) {
+        tileSets.add(tileSet);
+    }
+
+    /**
+     * @param rule the rule to add to this component.
+     */
+    public void addRule(TileSetRule<T> rule) {
+        rules.add(rule);
+    }
+
+    /**
+     * @return the TileSets (variables) of this component.
+     */
+    public List<TileSet<T>> getTileSets() {
+        return tileSets;
+    }
+
+    /**
+     * @return the rules (equations) of this component.
+     */
+    public List<TileSetRule<T>> getRules() {
+        return rules;
+    }
+
+    /**
+     * Solutions are only kept for debugging, see SolverConfig.setKeepSolutions().
+     * @return the solutions found for this component, or null if they were not kept.
+     */
+    public SolutionSet<T> getSolutionSet() {
+        return solutionSet;
+    }
+
+    /**
+     * @param solutionSet the solutions found for this component.
+     */
+    public void setSolutionSet(SolutionSet<T> solutionSet) {
+        this.solutionSet = solutionSet;
+    }
+
+    /**
+     * @return the total number of tiles in this component.
+     */
+    public int numTiles() {
+        int size = 0;
+        for (TileSet<T> tileSet : tileSets) {
+            size += tileSet.size();
+        }
+        return size;
+    }
+
+    /**
+     * A lower bound on the number of mines of any solution: the sum of the results of rules that share no TileSet,
+     * picked greedily from the largest result.
+     * @return the lower bound.
+     */
+    public int mineLowerBound() {
+        List<TileSetRule<T>> sortedRules = new ArrayList<>(rules);
+        sortedRules.sort((a, b) -> b.getResult() - a.getResult());
+        Set<TileSet<T>> used = new HashSet<>();
+        int bound = 0;
+        for (TileSetRule<T> rule : sortedRules) {
+            boolean disjoint = true;
+            for (TileSet<T> tileSet : rule.getTileSets()) {
+                if (used.contains(tileSet)) {
+                    disjoint = false;
+                    break;
+                }
+            }
+            if (disjoint) {
+                used.addAll(rule.getTileSets());
+                bound += rule.getResult();
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Restricts the tallies to the solutions with a number of mines in the given range. Solutions outside of it do not
+     * fit with the rest of the board, so they would be given a weight of 0 anyway, and the search skips them.
+     * @param minMines the fewest mines a counted solution may have.
+     * @param maxMines the most mines a counted solution may have.
+     */
+    public void setMineRange(int minMines, int maxMines) {
+        this.minMines = minMines;
+        this.maxMines = maxMines;
+    }
+
+    /**
+     * @return the fewest mines a counted solution may have, 0 unless restricted with setMineRange().
+     */
+    public int getMinMines() {
+        return minMines;
+    }
+
+    /**
+     * @return the most mines a counted solution may have, Integer.MAX_VALUE unless restricted with setMineRange().
+     */
+    public int getMaxMines() {
+        return maxMines;
+    }
+
+    /**
+     * @param other a solved component with the same signature.
+     * @return true if the tallies of the other component count every solution this component needs.
+     */
+    public boolean canReuseTally(FrontierComponent<T> other) {
+        return other.minMines <= minMines && other.maxMines >= maxMines;
+    }
+
+    /**
+     * The signature of a component is its set of TileSets. Since a TileSet is characterized by its tiles and its
+     * cleared neighbors, and the rules are built from those cleared neighbors, two components with equal signatures
+     * have the same rules and hence the same solutions.
+     * @return the signature of this component.
+     */
+    public Set<TileSet<T>> signature() {
+        return new HashSet<>(tileSets);
+    }
+
+    /**
+     * Reuses the tallies of a previously solved component with the same signature instead of solving again.
+     * @param other the previously solved component
+     */
+    public void copyTally(FrontierComponent<T> other) {
+        minMines = other.minMines;
+        maxMines = other.maxMines;
+        solutionSet = other.solutionSet;
+        weights = other.weights;
+        weightedMines = other.weightedMines;
+        logWeights = other.logWeights;
+        logWeightedMines = other.logWeightedMines;
+    }
+
+    /**
+     * Reuses the tallies of a cached component with the same ComponentKey instead of solving again.
+     * @param entry the cached tallies
+     * @param canonicalTileSets the TileSets of this component in canonical order, see ComponentKey.canonicalOrder().
+     */
+    public void copyTally(ComponentCache.Entry entry, List<TileSet<T>> canonicalTileSets) {
+        weights = entry.getWeights();
+        logWeights = entry.getLogWeights();
+        if (weights != null) {
+            weightedMines = new HashMap<>();
+            for (int i = 0; i < canonicalTileSets.size(); i++) {
+                weightedMines.put(canonicalTileSets.get(i), entry.getWeightedMines()[i]);
+            }
+        }
+        if (logWeights != null) {
+            logWeightedMines = new HashMap<>();
+            for (int i = 0; i < canonicalTileSets.size(); i++) {
+                logWeightedMines.put(canonicalTileSets.get(i), entry.getLogWeightedMines()[i]);
+            }
+        }
+    }
+
+    /**
+     * Always call after setTally().
+     * @param canonicalTileSets the TileSets of this component in canonical order, see ComponentKey.canonicalOrder().
+     * @return the tallies of this component, to be cached.
+     */
+    public ComponentCache.Entry toCacheEntry(List<TileSet<T>> canonicalTileSets) {
+        BigInteger[][] canonicalWeightedMines = null;
+        double[][] canonicalLogWeightedMines = null;
+        if (weights != null) {
+            canonicalWeightedMines = new BigInteger[canonicalTileSets.size()][];
+            for (int i = 0; i < canonicalTileSets.size(); i++) {
+                canonicalWeightedMines[i] = weightedMines.get(canonicalTileSets.get(i));
+            }
+        }
+        if (logWeights != null) {
+            canonicalLogWeightedMines = new double[canonicalTileSets.size()][];
+            for (int i = 0; i < canonicalTileSets.size(); i++) {
+                canonicalLogWeightedMines[i] = logWeightedMines.get(canonicalTileSets.get(i));
+            }
+        }
+        return new ComponentCache.Entry(weights, canonicalWeightedMines, logWeights, canonicalLogWeightedMines);
+    }
+
+    /**
+     * Keeps the totals of this component's solutions, mapped to its TileSets.
+     * @param tally the tally of the search over this component, with TileSet ids in the order of getTileSets().
+     * @param weightingMode the weighting mode the tally was made with.
+     */
+    public void setTally(SolutionTally<T> tally, WeightingMode weightingMode) {
+        if (weightingMode == WeightingMode.EXACT) {
+            weights = tally.getWeights();
+            weightedMines = new HashMap<>();
+            for (int id = 0; id < tileSets.size(); id++) {
+                weightedMines.put(tileSets.get(id), tally.getWeightedMines(id));
+            }
+        } else {
+            logWeights = tally.getLogWeights();
+            logWeightedMines = new HashMap<>();
+            for (int id = 0; id < tileSets.size(); id++) {
+                logWeightedMines.put(tileSets.get(id), tally.getLogWeightedMines(id));
+            }
+        }
+    }
+
+    /**
+     * @return true if a tally was set or copied, false if this component was never searched.
+     */
+    public boolean hasTally() {
+        return weights != null || logWeights != null;
+    }
+
+    /**
+     * Drops the tally and solutions of a count that ran out of budget, which only hold the solutions found so far.
+     */
+    public void clearTally() {
+        solutionSet = null;
+        weights = null;
+        weightedMines = null;
+        logWeights = null;
+        logWeightedMines = null;
+    }
+
+    /**
+     * Keeps exact totals computed by another engine than SolutionSearch, see FrontierSweep.
+     * @param weights the number of mine configurations, indexed by number of mines.
+     * @param weightedMines the weighted mine counts of each TileSet, indexed by number of mines.
+     */
+    public void setTally(BigInteger[] weights, Map<TileSet<T>, BigInteger[]> weightedMines) {
+        this.weights = weights;
+        this.weightedMines = weightedMines;
+    }
+
+    /**
+     * Keeps log-space totals computed by another engine than SolutionSearch, see FrontierSweep.
+     * @param logWeights the natural logarithm of the number of mine configurations, indexed by number of mines.
+     * @param logWeightedMines the natural logarithm of the weighted mine counts of each TileSet, indexed by number of mines.
+     */
+    public void setLogTally(double[] logWeights, Map<TileSet<T>, double[]> logWeightedMines) {
+        this.logWeights = logWeights;
+        this.logWeightedMines = logWeightedMines;
+    }
+
+    /**
+     * Always call after setTally() with an exact tally.
+     * @return the mine-count distribution of this component, indexed by number of mines.
+     */
+    public BigInteger[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Always call after setTally() with an exact tally.
+     * @param tileSet a TileSet of this component
+     * @return the weighted mine counts of the TileSet, indexed by the number of mines in the whole component.
+     */
+    public BigInteger[] getWeightedMines(TileSet<T> tileSet) {
+        return weightedMines.get(tileSet);
+    }
+
+    /**
+     * Always call after setTally() with a log-space tally.
+     * @return the natural logarithm of the mine-count distribution of this component, indexed by number of mines.
+     */
+    public double[] getLogWeights() {
+        return logWeights;
+    }
+
+    /**
+     * Always call after setTally() with a log-space tally.
+     * @param tileSet a TileSet of this component
+     * @return the natural logarithm of the weighted mine counts of the TileSet, indexed by the number of mines in the whole component.
+     */
+    public double[] getLogWeightedMines(TileSet<T> tileSet) {
+        return logWeightedMines.get(tileSet);
+    }
+}
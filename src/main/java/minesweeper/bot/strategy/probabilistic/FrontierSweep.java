@@ -0,0 +1,577 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Exact counting engine for long, thin components, as an alternative to SolutionSearch.
+ * The TileSets are ordered along the frontier, and swept one at a time. A rule is open at the sweep line if some of
+ * its TileSets are behind it and some ahead, and the state at the sweep line is the partial sum of every open rule.
+ * The states and the transitions between them (one per alpha) form a layered graph, and a forward and a backward
+ * pass over it count the weighted solutions by number of mines. The cost grows with the number of states per layer,
+ * which stays small when few rules are open at once, instead of with the number of solutions.
+ * Gives the same tallies as SolutionSearch.
+ */
+public class FrontierSweep<T extends MinesweeperTileable> implements ComponentCounter<T> {
+
+    /** Components with more states than this in a layer are left to SolutionSearch */
+    private static final int MAX_STATES_PER_LAYER = 1 << 14;
+
+    private int maxMines;
+    private WeightingMode weightingMode;
+    private SearchBudget budget;
+    private SearchBudget.NodeCounter nodes; // the nodes of the current count
+
+    // structure of the component being counted, TileSets by position in sweep order
+    private List<TileSet<T>> order;
+    private int[] sizes;
+    private int cap; // length of the tallies minus one
+
+    // layered graph, layer k is the sweep line before the TileSet at position k
+    private List<List<SweepState>> layerStates; // k : state index : state
+    private List<int[]> transitionFrom; // k : transition : state index in layer k
+    private List<int[]> transitionTo; // k : transition : state index in layer k + 1
+    private List<int[]> transitionAlpha; // k : transition : alpha of the TileSet at position k
+
+    /**
+     * @param maxMines the total number of mines in the game, no TileSet can have more.
+     * @param weightingMode how to tally solutions.
+     * @param budget the budget shared by every search of the solve, one node per state.
+     */
+    public FrontierSweep(int maxMines, WeightingMode weightingMode, SearchBudget budget) {
+        this.maxMines = maxMines;
+        this.weightingMode = weightingMode;
+        this.budget = budget;
+    }
+
+    /**
+     * Counts the solutions of a component and stores the tally in the component.
+     * @param component the component to count.
+     * @return true if the tally was stored, false if the component has too many states or the budget ran out, in
+     *         which case the component is left untouched.
+     */
+    @Override
+    public boolean count(FrontierComponent<T> component) {
+        order = sweepOrder(component);
+        int n = order.size();
+        sizes = new int[n];
+        int numTiles = 0;
+        for (int k = 0; k < n; k++) {
+            sizes[k] = order.get(k).size();
+            numTiles += sizes[k];
+        }
+        cap = Math.min(maxMines, numTiles);
+        nodes = budget.newNodeCounter();
+        boolean built = buildLayers(component.getRules());
+        nodes.flush();
+        if (!built) {
+            return false;
+        }
+        if (weightingMode == WeightingMode.EXACT) {
+            countExact(component);
+        } else {
+            countLogSpace(component);
+        }
+        return true;
+    }
+
+    /**
+     * Orders the TileSets so that rules span few positions: a breadth-first search from a TileSet at one end of the
+     * component, visiting neighbors with fewer neighbors first (Cuthill-McKee).
+     */
+    private List<TileSet<T>> sweepOrder(FrontierComponent<T> component) {
+        Map<TileSet<T>, Set<TileSet<T>>> neighborSets = new HashMap<>();
+        for (TileSet<T> tileSet : component.getTileSets()) {
+            neighborSets.put(tileSet, new LinkedHashSet<>());
+        }
+        for (TileSetRule<T> rule : component.getRules()) {
+            for (TileSet<T> a : rule.getTileSets()) {
+                for (TileSet<T> b : rule.getTileSets()) {
+                    if (a != b) {
+                        neighborSets.get(a).add(b);
+                    }
+                }
+            }
+        }
+        Map<TileSet<T>, List<TileSet<T>>> neighbors = new HashMap<>();
+        for (TileSet<T> tileSet : component.getTileSets()) {
+            List<TileSet<T>> list = new ArrayList<>(neighborSets.get(tileSet));
+            list.sort((a, b) -> neighborSets.get(a).size() - neighborSets.get(b).size());
+            neighbors.put(tileSet, list);
+        }
+        // the last TileSet reached from any start is at one end, and starting there again finds the other end
+        List<TileSet<T>> order = breadthFirst(component.getTileSets().get(0), neighbors);
+        order = breadthFirst(order.get(order.size() - 1), neighbors);
+        return breadthFirst(order.get(order.size() - 1), neighbors);
+    }
+
+    private List<TileSet<T>> breadthFirst(TileSet<T> start, Map<TileSet<T>, List<TileSet<T>>> neighbors) {
+        List<TileSet<T>> order = new ArrayList<>();
+        Set<TileSet<T>> visited = new HashSet<>();
+        Deque<TileSet<T>> queue = new ArrayDeque<>();
+        queue.add(start);
+        visited.add(start);
+        while (!queue.isEmpty()) {
+            TileSet<T> current = queue.poll();
+            order.add(current);
+            for (TileSet<T> neighbor : neighbors.get(current)) {
+                if (visited.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Builds the states reachable from the empty sweep line, and the transitions between them.
+     * A transition is only kept if every rule it touches can still be satisfied.
+     * @return false if a layer has too many states or the budget ran out.
+     */
+    private boolean buildLayers(List<TileSetRule<T>> rules) {
+        int n = order.size();
+        Map<TileSet<T>, Integer> positions = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            positions.put(order.get(k), k);
+        }
+        int numRules = rules.size();
+        int[] results = new int[numRules];
+        int[] first = new int[numRules];
+        int[] last = new int[numRules];
+        List<List<Integer>> rulesAt = new ArrayList<>(); // k : rules containing the TileSet at position k
+        for (int k = 0; k < n; k++) {
+            rulesAt.add(new ArrayList<>());
+        }
+        // capacityAfter[r][k - first[r]] is the number of tiles of rule r at positions after k
+        int[][] capacityAfter = new int[numRules][];
+        for (int r = 0; r < numRules; r++) {
+            results[r] = rules.get(r).getResult();
+            List<TileSet<T>> ruleTileSets = rules.get(r).getTileSets();
+            int[] rulePositions = new int[ruleTileSets.size()];
+            for (int j = 0; j < rulePositions.length; j++) {
+                rulePositions[j] = positions.get(ruleTileSets.get(j));
+                rulesAt.get(rulePositions[j]).add(r);
+            }
+            Arrays.sort(rulePositions);
+            first[r] = rulePositions[0];
+            last[r] = rulePositions[rulePositions.length - 1];
+            capacityAfter[r] = new int[last[r] - first[r] + 1];
+            int capacity = 0;
+            int j = rulePositions.length - 1;
+            for (int k = last[r]; k >= first[r]; k--) {
+                capacityAfter[r][k - first[r]] = capacity;
+                if (j >= 0 && rulePositions[j] == k) {
+                    capacity += sizes[k];
+                    j--;
+                }
+            }
+        }
+        // openRules.get(k) lists the rules open at layer k, a rule is opened at its first TileSet and closed at its last
+        List<int[]> openRules = new ArrayList<>();
+        int[] slot = new int[numRules]; // slot of each rule in the states of the current layer, or -1
+        Arrays.fill(slot, -1);
+        List<Integer> open = new ArrayList<>();
+        openRules.add(new int[0]);
+        for (int k = 0; k < n; k++) {
+            List<Integer> next = new ArrayList<>();
+            for (int r : open) {
+                if (last[r] > k) {
+                    next.add(r);
+                }
+            }
+            for (int r : rulesAt.get(k)) {
+                if (first[r] == k && last[r] > k) {
+                    next.add(r);
+                }
+            }
+            open = next;
+            openRules.add(open.stream().mapToInt(Integer::intValue).toArray());
+        }
+        boolean[] inRule = new boolean[numRules];
+
+        layerStates = new ArrayList<>();
+        transitionFrom = new ArrayList<>();
+        transitionTo = new ArrayList<>();
+        transitionAlpha = new ArrayList<>();
+        List<SweepState> initial = new ArrayList<>();
+        initial.add(new SweepState(new long[0]));
+        layerStates.add(initial);
+        for (int k = 0; k < n; k++) {
+            int[] openBefore = openRules.get(k);
+            int[] openAfter = openRules.get(k + 1);
+            for (int i = 0; i < openBefore.length; i++) {
+                slot[openBefore[i]] = i;
+            }
+            for (int r : rulesAt.get(k)) {
+                inRule[r] = true;
+            }
+            List<SweepState> states = layerStates.get(k);
+            List<SweepState> nextStates = new ArrayList<>();
+            Map<SweepState, Integer> nextIndices = new HashMap<>();
+            IntList from = new IntList();
+            IntList to = new IntList();
+            IntList alphas = new IntList();
+            for (int s = 0; s < states.size(); s++) {
+                if (!nodes.countNode()) {
+                    return false;
+                }
+                SweepState state = states.get(s);
+                for (int alpha = 0; alpha <= Math.min(sizes[k], maxMines); alpha++) {
+                    long[] nextWords = new long[SweepState.numWords(openAfter.length)];
+                    boolean valid = true;
+                    // rules still open after this TileSet
+                    for (int i = 0; i < openAfter.length; i++) {
+                        int r = openAfter[i];
+                        int partial = (slot[r] < 0 ? 0 : state.get(slot[r])) + (inRule[r] ? alpha : 0);
+                        if (partial > results[r] || partial + capacityAfter[r][k - first[r]] < results[r]) {
+                            valid = false;
+                            break;
+                        }
+                        SweepState.set(nextWords, i, partial);
+                    }
+                    // rules closing at this TileSet
+                    for (int i = 0; valid && i < rulesAt.get(k).size(); i++) {
+                        int r = rulesAt.get(k).get(i);
+                        if (last[r] == k && (slot[r] < 0 ? 0 : state.get(slot[r])) + alpha != results[r]) {
+                            valid = false;
+                        }
+                    }
+                    if (!valid) {
+                        budget.countPruned();
+                        continue;
+                    }
+                    SweepState nextState = new SweepState(nextWords);
+                    Integer t = nextIndices.get(nextState);
+                    if (t == null) {
+                        t = nextStates.size();
+                        nextIndices.put(nextState, t);
+                        nextStates.add(nextState);
+                    }
+                    from.add(s);
+                    to.add(t);
+                    alphas.add(alpha);
+                }
+            }
+            for (int r : openBefore) {
+                slot[r] = -1;
+            }
+            for (int r : rulesAt.get(k)) {
+                inRule[r] = false;
+            }
+            if (nextStates.size() > MAX_STATES_PER_LAYER) {
+                return false;
+            }
+            layerStates.add(nextStates);
+            transitionFrom.add(from.toArray());
+            transitionTo.add(to.toArray());
+            transitionAlpha.add(alphas.toArray());
+        }
+        // without solutions the last layer is empty, give it the empty state so the passes count 0
+        if (layerStates.get(n).isEmpty()) {
+            layerStates.get(n).add(new SweepState(new long[0]));
+        }
+        return true;
+    }
+
+    /**
+     * The partial sums of the open rules at the sweep line, packed 4 bits each, since rule results are at most 8.
+     */
+    private static class SweepState {
+        private long[] words;
+        private int hash;
+
+        public SweepState(long[] words) {
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+
+        public static int numWords(int numSlots) {
+            return (numSlots + 15) / 16;
+        }
+
+        public static void set(long[] words, int slot, int partial) {
+            words[slot / 16] |= (long) partial << (4 * (slot % 16));
+        }
+
+        public int get(int slot) {
+            return (int) (words[slot / 16] >>> (4 * (slot % 16))) & 15;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SweepState && Arrays.equals(words, ((SweepState) other).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Growable array of ints.
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        public void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Forward and backward passes with BigInteger weights, see WeightingMode.EXACT.
+     * forward[k][s][m] is the weight of the ways to reach state s of layer k with m mines behind the sweep line,
+     * backward[k][s][m] that of the ways to finish from state s of layer k with m mines ahead of it.
+     */
+    private void countExact(FrontierComponent<T> component) {
+        int n = order.size();
+        BigInteger[][][] forward = new BigInteger[n + 1][][];
+        BigInteger[][][] backward = new BigInteger[n + 1][][];
+        forward[0] = new BigInteger[][]{zeros(1)};
+        forward[0][0][0] = BigInteger.ONE;
+        int behind = 0;
+        for (int k = 0; k < n; k++) {
+            behind = Math.min(cap, behind + sizes[k]);
+            forward[k + 1] = new BigInteger[layerStates.get(k + 1).size()][];
+            for (int t = 0; t < forward[k + 1].length; t++) {
+                forward[k + 1][t] = zeros(behind + 1);
+            }
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                BigInteger c = Combinatorics.combinations(sizes[k], alphas[i]);
+                BigInteger[] source = forward[k][from[i]];
+                BigInteger[] target = forward[k + 1][to[i]];
+                for (int m = 0; m < source.length && m + alphas[i] < target.length; m++) {
+                    if (source[m].signum() != 0) {
+                        target[m + alphas[i]] = target[m + alphas[i]].add(source[m].multiply(c));
+                    }
+                }
+            }
+        }
+        backward[n] = new BigInteger[][]{zeros(1)};
+        backward[n][0][0] = BigInteger.ONE;
+        int ahead = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            ahead = Math.min(cap, ahead + sizes[k]);
+            backward[k] = new BigInteger[layerStates.get(k).size()][];
+            for (int s = 0; s < backward[k].length; s++) {
+                backward[k][s] = zeros(ahead + 1);
+            }
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                BigInteger c = Combinatorics.combinations(sizes[k], alphas[i]);
+                BigInteger[] source = backward[k + 1][to[i]];
+                BigInteger[] target = backward[k][from[i]];
+                for (int m = 0; m < source.length && m + alphas[i] < target.length; m++) {
+                    if (source[m].signum() != 0) {
+                        target[m + alphas[i]] = target[m + alphas[i]].add(source[m].multiply(c));
+                    }
+                }
+            }
+        }
+
+        BigInteger[] weights = zeros(cap + 1);
+        // the last layer only has the empty state, and so does the first
+        for (int m = 0; m < forward[n][0].length; m++) {
+            weights[m] = forward[n][0][m];
+        }
+        Map<TileSet<T>, BigInteger[]> weightedMines = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            BigInteger[] sums = zeros(cap + 1);
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                if (alphas[i] == 0) {
+                    continue;
+                }
+                BigInteger c = Combinatorics.combinations(sizes[k], alphas[i]).multiply(BigInteger.valueOf(alphas[i]));
+                BigInteger[] before = forward[k][from[i]];
+                BigInteger[] after = backward[k + 1][to[i]];
+                int[] afterRange = nonZeroRange(after);
+                for (int m1 = 0; m1 < before.length; m1++) {
+                    if (before[m1].signum() == 0) {
+                        continue;
+                    }
+                    BigInteger left = before[m1].multiply(c);
+                    for (int m2 = afterRange[0]; m2 <= afterRange[1] && m1 + alphas[i] + m2 <= cap; m2++) {
+                        if (after[m2].signum() != 0) {
+                            sums[m1 + alphas[i] + m2] = sums[m1 + alphas[i] + m2].add(left.multiply(after[m2]));
+                        }
+                    }
+                }
+            }
+            weightedMines.put(order.get(k), sums);
+        }
+        component.setTally(weights, weightedMines);
+    }
+
+    /**
+     * @return the first and last index of a non-zero weight, or {0, -1} if every weight is 0.
+     */
+    private static int[] nonZeroRange(BigInteger[] weights) {
+        int lo = 0;
+        int hi = weights.length - 1;
+        while (lo <= hi && weights[lo].signum() == 0) {
+            lo++;
+        }
+        while (hi >= lo && weights[hi].signum() == 0) {
+            hi--;
+        }
+        return new int[]{lo, hi};
+    }
+
+    /**
+     * @return the first and last index of a non-zero weight, or {0, -1} if every weight is 0.
+     */
+    private static int[] nonZeroRange(double[] weights) {
+        int lo = 0;
+        int hi = weights.length - 1;
+        while (lo <= hi && weights[lo] == 0) {
+            lo++;
+        }
+        while (hi >= lo && weights[hi] == 0) {
+            hi--;
+        }
+        return new int[]{lo, hi};
+    }
+
+    private static BigInteger[] zeros(int length) {
+        BigInteger[] array = new BigInteger[length];
+        Arrays.fill(array, BigInteger.ZERO);
+        return array;
+    }
+
+    /**
+     * Forward and backward passes with double weights, see WeightingMode.LOG_SPACE.
+     * Same steps as countExact(). Every layer is divided by its largest weight, and the natural logarithms of the
+     * divisors are accumulated in forwardScale and backwardScale, so nothing overflows.
+     */
+    private void countLogSpace(FrontierComponent<T> component) {
+        int n = order.size();
+        double[][][] forward = new double[n + 1][][];
+        double[][][] backward = new double[n + 1][][];
+        double[] forwardScale = new double[n + 1];
+        double[] backwardScale = new double[n + 1];
+        forward[0] = new double[][]{{1.0}};
+        int behind = 0;
+        for (int k = 0; k < n; k++) {
+            behind = Math.min(cap, behind + sizes[k]);
+            forward[k + 1] = new double[layerStates.get(k + 1).size()][behind + 1];
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                double c = Combinatorics.combinations(sizes[k], alphas[i]).doubleValue();
+                double[] source = forward[k][from[i]];
+                double[] target = forward[k + 1][to[i]];
+                for (int m = 0; m < source.length && m + alphas[i] < target.length; m++) {
+                    target[m + alphas[i]] += source[m] * c;
+                }
+            }
+            forwardScale[k + 1] = forwardScale[k] + normalize(forward[k + 1]);
+        }
+        backward[n] = new double[][]{{1.0}};
+        int ahead = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            ahead = Math.min(cap, ahead + sizes[k]);
+            backward[k] = new double[layerStates.get(k).size()][ahead + 1];
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                double c = Combinatorics.combinations(sizes[k], alphas[i]).doubleValue();
+                double[] source = backward[k + 1][to[i]];
+                double[] target = backward[k][from[i]];
+                for (int m = 0; m < source.length && m + alphas[i] < target.length; m++) {
+                    target[m + alphas[i]] += source[m] * c;
+                }
+            }
+            backwardScale[k] = backwardScale[k + 1] + normalize(backward[k]);
+        }
+
+        double[] logWeights = new double[cap + 1];
+        Arrays.fill(logWeights, Double.NEGATIVE_INFINITY);
+        for (int m = 0; m < forward[n][0].length; m++) {
+            logWeights[m] = Math.log(forward[n][0][m]) + forwardScale[n];
+        }
+        Map<TileSet<T>, double[]> logWeightedMines = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            double[] sums = new double[cap + 1];
+            int[] from = transitionFrom.get(k);
+            int[] to = transitionTo.get(k);
+            int[] alphas = transitionAlpha.get(k);
+            for (int i = 0; i < from.length; i++) {
+                if (alphas[i] == 0) {
+                    continue;
+                }
+                double c = Combinatorics.combinations(sizes[k], alphas[i]).doubleValue() * alphas[i];
+                double[] before = forward[k][from[i]];
+                double[] after = backward[k + 1][to[i]];
+                int[] beforeRange = nonZeroRange(before);
+                int[] afterRange = nonZeroRange(after);
+                for (int m1 = beforeRange[0]; m1 <= beforeRange[1]; m1++) {
+                    double left = before[m1] * c;
+                    if (left == 0) {
+                        continue;
+                    }
+                    for (int m2 = afterRange[0]; m2 <= afterRange[1] && m1 + alphas[i] + m2 <= cap; m2++) {
+                        sums[m1 + alphas[i] + m2] += left * after[m2];
+                    }
+                }
+            }
+            double scale = forwardScale[k] + backwardScale[k + 1];
+            double[] logSums = new double[cap + 1];
+            for (int m = 0; m <= cap; m++) {
+                logSums[m] = Math.log(sums[m]) + scale;
+            }
+            logWeightedMines.put(order.get(k), logSums);
+        }
+        component.setLogTally(logWeights, logWeightedMines);
+    }
+
+    /**
+     * Divides every weight of a layer by the largest one.
+     * @return the natural logarithm of the divisor, 0 if every weight is 0.
+     */
+    private static double normalize(double[][] layer) {
+        double max = 0;
+        for (double[] weights : layer) {
+            for (double weight : weights) {
+                max = Math.max(max, weight);
+            }
+        }
+        if (max == 0) {
+            return 0;
+        }
+        for (double[] weights : layer) {
+            for (int m = 0; m < weights.length; m++) {
+                weights[m] /= max;
+            }
+        }
+        return Math.log(max);
+    }
+}
@@ -0,0 +1,80 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * A copy of what a player sees of one tile, which can be cleared with any number to try out a move without touching
+ * the game.
+ */
+class HypotheticalTile implements MinesweeperTileable {
+    private int row;
+    private int column;
+    private int numberOfNeighboringMines;
+    private boolean cleared;
+    private boolean flagged;
+    private double initialDensity;
+
+    private HypotheticalTile(MinesweeperTileable tile) {
+        this.row = tile.getRow();
+        this.column = tile.getColumn();
+        this.cleared = tile.isCleared();
+        this.flagged = tile.isFlagged();
+        this.numberOfNeighboringMines = cleared ? tile.getNumberOfNeighboringMines() : 0;
+        this.initialDensity = tile.initialDensity();
+    }
+
+    /**
+     * Copies the numbers of the cleared tiles and the flags of a game state, but none of its mines.
+     * @param tilingState the game state to copy
+     * @return the copy
+     */
+    static <T extends MinesweeperTileable> TilingState<HypotheticalTile> copyOf(TilingState<T> tilingState) {
+        TilingState<HypotheticalTile> copy = new TilingState<>(tilingState.getNumRows(), tilingState.getNumColumns(),
+            tilingState.getTotalNumberOfMines());
+        copy.updateDensity(tilingState.density());
+        for (T tile : tilingState) {
+            copy.add(tile.getRow(), tile.getColumn(), new HypotheticalTile(tile));
+        }
+        return copy;
+    }
+
+    /**
+     * Clears the tile as if it showed the given number.
+     * @param numberOfNeighboringMines the number the tile shows
+     */
+    void reveal(int numberOfNeighboringMines) {
+        this.cleared = true;
+        this.numberOfNeighboringMines = numberOfNeighboringMines;
+    }
+
+    @Override
+    public int getNumberOfNeighboringMines() {
+        return numberOfNeighboringMines;
+    }
+
+    @Override
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public boolean isCleared() {
+        return cleared;
+    }
+
+    @Override
+    public boolean isFlagged() {
+        return flagged;
+    }
+
+    @Override
+    public double initialDensity() {
+        return initialDensity;
+    }
+}
@@ -0,0 +1,64 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * Options for a LookaheadStrategy.
+ * The defaults expand the 5 least-likely tiles in parallel, for at most 500 milliseconds per move.
+ */
+public class LookaheadConfig {
+    private int numCandidates;
+    private long timeBudgetMillis;
+    private boolean parallel;
+
+    /**
+     * Initializes a config with the default options.
+     */
+    public LookaheadConfig() {
+        numCandidates = 5;
+        timeBudgetMillis = 500;
+        parallel = true;
+    }
+
+    /**
+     * @return the number of least-likely tiles expanded per move.
+     */
+    public int getNumCandidates() {
+        return numCandidates;
+    }
+
+    /**
+     * @param numCandidates the number of least-likely tiles expanded per move. With 1, the strategy makes the same
+     *                      moves as ProbabilisticStrategy, only slower.
+     */
+    public void setNumCandidates(int numCandidates) {
+        this.numCandidates = numCandidates;
+    }
+
+    /**
+     * @return the time after which no more candidates are expanded, in milliseconds.
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * @param timeBudgetMillis the time after which no more candidates are expanded, in milliseconds. A candidate that
+     *                         is not fully expanded in time is not scored.
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * @return true if candidates are expanded on the common fork-join pool.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel true to expand candidates on the common fork-join pool.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+}
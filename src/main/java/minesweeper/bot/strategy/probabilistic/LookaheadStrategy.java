@@ -0,0 +1,193 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * Probabilistic strategy that looks one move ahead when it has to guess.
+ * Certain moves are made exactly like ProbabilisticStrategy. Otherwise, the least-likely tiles are expanded: each one
+ * is cleared on a copy of the game state with every number it could show, and solved again. The count of consistent
+ * configurations of each copy gives the probability of each number, and the tiles with probability 0 in it are the
+ * tiles the move would make safe. The candidate with the highest expected progress, its chance to be safe times one
+ * plus the expected number of tiles it makes safe, is cleared.
+ */
+public class LookaheadStrategy<T extends MinesweeperTileable> extends ProbabilisticStrategy<T> {
+
+    private SolverConfig solverConfig;
+    private LookaheadConfig config;
+    private Map<T, Double> scores;
+
+    /**
+     * @param random the Random instance to use.
+     * @param solverConfig the options of the solver of the game state and of every copy of it.
+     * @param config the options of the lookahead.
+     */
+    public LookaheadStrategy(Random random, SolverConfig solverConfig, LookaheadConfig config) {
+        super(random, solverConfig);
+        this.solverConfig = solverConfig;
+        this.config = config;
+        this.scores = new HashMap<>();
+    }
+
+    /**
+     * Takes in a random number generator, uses the default solver config of ProbabilisticStrategy and the default
+     * lookahead config.
+     * @param random the Random instance to use.
+     */
+    public LookaheadStrategy(Random random) {
+        this(random, persistentConfig(), new LookaheadConfig());
+    }
+
+    /**
+     * Initializes the strategy with a new Random instance.
+     */
+    public LookaheadStrategy() {
+        this(new Random());
+    }
+
+    @Override
+    public T tileToClear() {
+        scores = new HashMap<>();
+        T tile = super.tileToClear();
+        Solver<T> solver = getSolver();
+        if (!solver.deducedSafeTiles().isEmpty() || solver.isApproximate()) {
+            return tile;
+        }
+        Map<T, Double> probabilities = solver.getProbabilityMap();
+        if (probabilities.size() <= 1 || probabilities.get(tile) == 0.0) {
+            return tile;
+        }
+
+        long deadline = System.nanoTime() + config.getTimeBudgetMillis() * 1_000_000;
+        List<T> candidates = candidatesOf(tile, probabilities);
+        Stream<T> stream = config.isParallel() ? candidates.parallelStream() : candidates.stream();
+        List<Double> candidateScores = stream
+            .map(candidate -> score(candidate, probabilities.get(candidate), deadline))
+            .collect(Collectors.toList());
+
+        // ties go to the earlier candidate, so to the tile of the solver
+        T best = tile;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < candidates.size(); i++) {
+            Double score = candidateScores.get(i);
+            if (score != null) {
+                scores.put(candidates.get(i), score);
+                if (score > bestScore) {
+                    best = candidates.get(i);
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the tile chosen by the solver, then the other least-likely tiles in board order, up to the number of
+     *         candidates of the config.
+     */
+    private List<T> candidatesOf(T tile, Map<T, Double> probabilities) {
+        List<T> others = new ArrayList<>();
+        for (T other : tilingState) {
+            if (!other.equals(tile) && probabilities.containsKey(other)) {
+                others.add(other);
+            }
+        }
+        Collections.sort(others, (a, b) -> Double.compare(probabilities.get(a), probabilities.get(b)));
+        List<T> candidates = new ArrayList<>();
+        candidates.add(tile);
+        for (int i = 0; i < others.size() && candidates.size() < config.getNumCandidates(); i++) {
+            candidates.add(others.get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * Expands one candidate on its own copy of the game state, so candidates can be expanded concurrently.
+     * @param candidate the tile to clear
+     * @param probability the probability that the candidate has a mine
+     * @param deadline the System.nanoTime() after which expansion stops
+     * @return the expected progress of clearing the candidate, or null if it could not be fully expanded in time.
+     */
+    private Double score(T candidate, double probability, long deadline) {
+        TilingState<HypotheticalTile> copy = HypotheticalTile.copyOf(tilingState);
+        HypotheticalTile tile = copy.get(candidate.getRow(), candidate.getColumn());
+        int numFlagged = copy.getNumberOfFlaggedNeighbors(tile);
+        int numUnknown = copy.getNumberOfUnclearedNeighbors(tile) - numFlagged;
+        double[] logWeights = new double[numUnknown + 1];
+        int[] numSafe = new int[numUnknown + 1];
+        for (int n = 0; n <= numUnknown; n++) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (isCancelled() || remainingMillis <= 0) {
+                return null;
+            }
+            tile.reveal(numFlagged + n);
+            copy.update(tile);
+            Solver<HypotheticalTile> solver = new Solver<>(copy, hypotheticalConfig(remainingMillis), getComponentCache());
+            solver.tileToClear(ThreadLocalRandom.current());
+            if (solver.isApproximate()) {
+                return null;
+            }
+            logWeights[n] = solver.getLogTotalWeight();
+            for (double tileProbability : solver.getProbabilityMap().values()) {
+                if (tileProbability == 0.0) {
+                    numSafe[n]++;
+                }
+            }
+        }
+
+        double maxLogWeight = Double.NEGATIVE_INFINITY;
+        for (double logWeight : logWeights) {
+            maxLogWeight = Math.max(maxLogWeight, logWeight);
+        }
+        if (maxLogWeight == Double.NEGATIVE_INFINITY) {
+            return null;
+        }
+        double totalWeight = 0;
+        double expectedSafe = 0;
+        for (int n = 0; n <= numUnknown; n++) {
+            double weight = Math.exp(logWeights[n] - maxLogWeight);
+            totalWeight += weight;
+            expectedSafe += weight * numSafe[n];
+        }
+        return (1 - probability) * (1 + expectedSafe / totalWeight);
+    }
+
+    /**
+     * @return the solver config of a copy of the game state: the options of the strategy, without the deduction pass
+     *         so every copy is fully counted, sequential since candidates already run in parallel, and limited to the
+     *         time left.
+     */
+    private SolverConfig hypotheticalConfig(long remainingMillis) {
+        SolverConfig hypothetical = new SolverConfig();
+        hypothetical.setWeightingMode(solverConfig.getWeightingMode());
+        hypothetical.setCountingEngine(solverConfig.getCountingEngine());
+        hypothetical.setVariableOrdering(solverConfig.getVariableOrdering());
+        hypothetical.setNodeLimit(solverConfig.getNodeLimit());
+        hypothetical.setDeduceFirst(false);
+        hypothetical.setTimeLimitMillis(remainingMillis);
+        return hypothetical;
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return the expected progress of every fully expanded candidate of the last move, empty if the move was certain.
+     */
+    public Map<T, Double> lookaheadScores() {
+        return scores;
+    }
+
+    @Override
+    public String name() {
+        return "LOOKAHEAD";
+    }
+}
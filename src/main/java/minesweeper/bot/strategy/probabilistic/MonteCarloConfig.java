@@ -0,0 +1,81 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * Options for a MonteCarloSolver.
+ * The defaults take at most 20000 samples or 200 milliseconds per move, split into 20 batches.
+ */
+public class MonteCarloConfig {
+    private int sampleBudget;
+    private long timeBudgetMillis;
+    private int numBatches;
+    private int exactThreshold;
+
+    /**
+     * Initializes a config with the default options.
+     */
+    public MonteCarloConfig() {
+        sampleBudget = 20000;
+        timeBudgetMillis = 200;
+        numBatches = 20;
+        exactThreshold = 16;
+    }
+
+    /**
+     * @return the largest number of samples to take per move, across all components and batches.
+     */
+    public int getSampleBudget() {
+        return sampleBudget;
+    }
+
+    /**
+     * @param sampleBudget the largest number of samples to take per move, across all components and batches.
+     */
+    public void setSampleBudget(int sampleBudget) {
+        this.sampleBudget = sampleBudget;
+    }
+
+    /**
+     * @return the time after which sampling stops, in milliseconds.
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * @param timeBudgetMillis the time after which sampling stops, in milliseconds. Every batch still gets at least one
+     *                         sample of every sampled component, so a tiny budget can be exceeded.
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * @return the number of independent batches the samples are split into.
+     */
+    public int getNumBatches() {
+        return numBatches;
+    }
+
+    /**
+     * @param numBatches the number of independent batches the samples are split into. The spread of the batch
+     *                   estimates gives the confidence intervals, so there must be at least 2.
+     */
+    public void setNumBatches(int numBatches) {
+        this.numBatches = numBatches;
+    }
+
+    /**
+     * @return the largest number of TileSets of a component that is enumerated exactly instead of sampled.
+     */
+    public int getExactThreshold() {
+        return exactThreshold;
+    }
+
+    /**
+     * @param exactThreshold the largest number of TileSets of a component that is enumerated exactly instead of
+     *                       sampled. 0 samples every component.
+     */
+    public void setExactThreshold(int exactThreshold) {
+        this.exactThreshold = exactThreshold;
+    }
+}
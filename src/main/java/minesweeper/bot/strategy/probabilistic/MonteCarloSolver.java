@@ -0,0 +1,224 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.TilingState;
+
+/**
+ * Approximate solver for game states whose components are too large to enumerate.
+ * Builds the same TileSets, rules and components as Solver. Small components are enumerated exactly, large ones are
+ * sampled with a SolutionSampler, and the tallies are combined by Solver as usual.
+ * Both share the time budget of the move: the exact counts may use up to half of it, and a small component whose count
+ * runs out of time is sampled instead. Sampling then runs until the end of the time budget.
+ * Samples are split into independent batches. The probabilities are estimated from all samples together, and the
+ * spread of the per-batch estimates gives a 95% confidence interval (normal approximation) for each TileSet.
+ * @param <T> the generic Tileable object this bot can solve minesweeper games for.
+ */
+public class MonteCarloSolver<T extends MinesweeperTileable> {
+    private static final double Z_95 = 1.96;
+
+    private Solver<T> solver;
+    private MonteCarloConfig config;
+    private Set<TileSet<T>> sampledTileSets;
+    private Map<TileSet<T>, Double> marginsOfError; // TileSet : half-width of its confidence interval
+
+    /**
+     * @param tilingState the game state to solve
+     * @param config the sampling options of this solver
+     */
+    public MonteCarloSolver(TilingState<T> tilingState, MonteCarloConfig config) {
+        this.config = config;
+        this.solver = new Solver<>(tilingState);
+        this.sampledTileSets = new HashSet<>();
+        this.marginsOfError = new HashMap<>();
+    }
+
+    /**
+     * Estimates the probabilities of the current game state and finds the tile to clear.
+     * @param random the random instance to use when sampling and when picking the random tile.
+     * @return the tile to clear, from the TileSet with the lowest estimated probability.
+     */
+    public T tileToClear(Random random) {
+        sampledTileSets.clear();
+        marginsOfError.clear();
+        TileSet<T> safeTileSet = solver.buildModel();
+        if (safeTileSet != null) {
+            return safeTileSet.selectRandomTile(random);
+        }
+        long deadline = System.nanoTime() + config.getTimeBudgetMillis() * 1_000_000;
+        int totalMines = solver.getNumUnflaggedMines();
+        SearchBudget budget = new SearchBudget(Math.max(1, config.getTimeBudgetMillis() / 2), 0);
+        SolutionSearch<T> search = new SolutionSearch<>(totalMines, WeightingMode.LOG_SPACE, false, false, VariableOrdering.MIN_DOMAIN_OVER_DEGREE, budget);
+        List<FrontierComponent<T>> sampledComponents = new ArrayList<>();
+        for (FrontierComponent<T> component : solver.getComponents()) {
+            if (component.getTileSets().size() <= config.getExactThreshold() && search.count(component)) {
+                continue;
+            }
+            if (component.hasTally()) {
+                component.setLogTally(null, null); // the partial tally of a count that ran out of time
+            }
+            sampledComponents.add(component);
+            sampledTileSets.addAll(component.getTileSets());
+        }
+        if (sampledComponents.isEmpty()) {
+            solver.calculateAndAssignProbabilities();
+        } else {
+            estimateProbabilities(sampledComponents, totalMines, deadline, random);
+        }
+        return solver.findRandomMinimumLikelihoodTile(random);
+    }
+
+    /**
+     * Samples the given components in batches until the budget runs out, then assigns the pooled estimates to the
+     * TileSets and keeps the margins of error.
+     * @param deadline the System.nanoTime() after which sampling stops
+     */
+    private void estimateProbabilities(List<FrontierComponent<T>> sampledComponents, int totalMines, long deadline, Random random) {
+        int numBatches = Math.max(2, config.getNumBatches());
+        List<SolutionSampler<T>> samplers = new ArrayList<>();
+        List<List<SolutionTally<T>>> batches = new ArrayList<>(); // batch : component : tally
+        for (FrontierComponent<T> component : sampledComponents) {
+            samplers.add(new SolutionSampler<>(component, totalMines, random));
+        }
+        for (int b = 0; b < numBatches; b++) {
+            List<SolutionTally<T>> tallies = new ArrayList<>();
+            for (FrontierComponent<T> component : sampledComponents) {
+                tallies.add(new SolutionTally<>(component.getTileSets().size(), Math.min(totalMines, component.numTiles()), WeightingMode.LOG_SPACE));
+            }
+            batches.add(tallies);
+        }
+
+        // round-robin over batches, one sample of every component each, so every batch has the same number of samples
+        int numSamples = 0;
+        while (true) {
+            for (List<SolutionTally<T>> tallies : batches) {
+                for (int c = 0; c < samplers.size(); c++) {
+                    samplers.get(c).sample(tallies.get(c));
+                    numSamples++;
+                }
+            }
+            if (numSamples >= config.getSampleBudget() || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        // per-batch estimates, skipping batches where a component had no solution
+        List<TileSet<T>> tileSets = solver.getTileSets();
+        List<double[]> estimates = new ArrayList<>();
+        for (List<SolutionTally<T>> tallies : batches) {
+            if (!assignTallies(sampledComponents, tallies)) {
+                continue;
+            }
+            solver.calculateAndAssignProbabilities();
+            double[] estimate = new double[tileSets.size()];
+            for (int i = 0; i < estimate.length; i++) {
+                estimate[i] = tileSets.get(i).getProbability();
+            }
+            estimates.add(estimate);
+        }
+
+        // pooled estimate
+        List<SolutionTally<T>> pooled = batches.get(0);
+        for (int b = 1; b < numBatches; b++) {
+            for (int c = 0; c < pooled.size(); c++) {
+                pooled.get(c).addAll(batches.get(b).get(c));
+            }
+        }
+        if (assignTallies(sampledComponents, pooled)) {
+            solver.calculateAndAssignProbabilities();
+        } // otherwise no descent found a solution, and every TileSet keeps its initial density
+
+        for (int i = 0; i < tileSets.size(); i++) {
+            marginsOfError.put(tileSets.get(i), marginOfError(estimates, i));
+        }
+    }
+
+    /**
+     * @return false if one of the tallies is empty, in which case nothing is assigned.
+     */
+    private boolean assignTallies(List<FrontierComponent<T>> sampledComponents, List<SolutionTally<T>> tallies) {
+        for (SolutionTally<T> tally : tallies) {
+            if (tally.isEmpty()) {
+                return false;
+            }
+        }
+        for (int c = 0; c < sampledComponents.size(); c++) {
+            sampledComponents.get(c).setTally(tallies.get(c), WeightingMode.LOG_SPACE);
+        }
+        return true;
+    }
+
+    /**
+     * @return the half-width of the 95% confidence interval of the mean of the estimates at index i,
+     *         or 1 if there are fewer than two estimates.
+     */
+    private static double marginOfError(List<double[]> estimates, int i) {
+        int n = estimates.size();
+        if (n < 2) {
+            return 1.0;
+        }
+        double mean = 0;
+        for (double[] estimate : estimates) {
+            mean += estimate[i];
+        }
+        mean /= n;
+        double variance = 0;
+        for (double[] estimate : estimates) {
+            variance += (estimate[i] - mean) * (estimate[i] - mean);
+        }
+        variance /= n - 1;
+        return Z_95 * Math.sqrt(variance / n);
+    }
+
+    /**
+     * Returns a mapping of each evaluated tile to the estimated probability of its TileSet.
+     * @return the mapping of each tile to its estimated probability
+     */
+    public Map<T, Double> getProbabilityMap() {
+        return solver.getProbabilityMap();
+    }
+
+    /**
+     * Each probability of getProbabilityMap() lies within its margin of error with 95% confidence.
+     * Tiles that were deduced, or whose whole game state was enumerated exactly, have a margin of 0.
+     * @return the mapping of each evaluated tile to the half-width of its confidence interval.
+     */
+    public Map<T, Double> getMarginOfErrorMap() {
+        Map<T, Double> marginMap = new HashMap<>();
+        for (T tile : solver.getProbabilityMap().keySet()) {
+            marginMap.put(tile, 0.0);
+        }
+        for (Map.Entry<TileSet<T>, Double> entry : marginsOfError.entrySet()) {
+            for (T tile : entry.getKey()) {
+                marginMap.put(tile, entry.getValue());
+            }
+        }
+        return marginMap;
+    }
+
+    /**
+     * Only tiles that are certain are flagged: sampled TileSets are never flagged, even with an estimate of 1.
+     * @return a list of tiles to flag.
+     */
+    public List<T> tilesToFlag() {
+        List<T> tilesToFlag = new ArrayList<>();
+        Set<T> sampledTiles = new HashSet<>();
+        for (TileSet<T> tileSet : sampledTileSets) {
+            for (T tile : tileSet) {
+                sampledTiles.add(tile);
+            }
+        }
+        for (T tile : solver.tilesToFlag()) {
+            if (!sampledTiles.contains(tile)) {
+                tilesToFlag.add(tile);
+            }
+        }
+        return tilesToFlag;
+    }
+}
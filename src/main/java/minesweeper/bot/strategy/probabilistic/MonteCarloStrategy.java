@@ -0,0 +1,77 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import src.main.java.minesweeper.bot.strategy.BotStrategy;
+import src.main.java.minesweeper.bot.strategy.DecisionDetailsProvider;
+import src.main.java.minesweeper.bot.strategy.FlaggingStrategy;
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+
+/**
+ * Approximate probabilistic minesweeper strategy.
+ * Same model as ProbabilisticStrategy, but large components are sampled within a time and sample budget instead of
+ * enumerated, so every move takes a bounded time. See MonteCarloSolver.
+ */
+public class MonteCarloStrategy<T extends MinesweeperTileable> extends BotStrategy<T> implements DecisionDetailsProvider<T>, FlaggingStrategy<T> {
+
+    private Random random;
+    private MonteCarloSolver<T> solver;
+    private MonteCarloConfig config;
+
+    /**
+     * Takes in a random number generator and the sampling options.
+     * @param random the Random instance to use.
+     * @param config the sampling options.
+     */
+    public MonteCarloStrategy(Random random, MonteCarloConfig config) {
+        this.random = random;
+        this.config = config;
+    }
+
+    /**
+     * Takes in a random number generator, uses the default sampling options.
+     * @param random the Random instance to use.
+     */
+    public MonteCarloStrategy(Random random) {
+        this(random, new MonteCarloConfig());
+    }
+
+    /**
+     * Initializes the strategy with a new Random instance.
+     */
+    public MonteCarloStrategy() {
+        this(new Random());
+    }
+
+    @Override
+    public T tileToClear() {
+        solver = new MonteCarloSolver<>(tilingState, config);
+        T tile = solver.tileToClear(random);
+        return tile;
+    }
+
+    @Override
+    public List<T> tilesToFlag() {
+        return solver.tilesToFlag();
+    }
+
+    @Override
+    public Map<T, Double> decisionDetails() {
+        return solver.getProbabilityMap();
+    }
+
+    /**
+     * The estimate of each tile in decisionDetails() lies within its margin of error with 95% confidence.
+     * @return the mapping of each tile to the half-width of the confidence interval of its estimate.
+     */
+    public Map<T, Double> marginsOfError() {
+        return solver.getMarginOfErrorMap();
+    }
+
+    @Override
+    public String name() {
+        return "MONTE_CARLO";
+    }
+}
@@ -1,29 +1,51 @@
 package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
 import src.main.java.minesweeper.bot.strategy.BotStrategy;
+import src.main.java.minesweeper.bot.strategy.CancellableStrategy;
 import src.main.java.minesweeper.bot.strategy.DecisionDetailsProvider;
 import src.main.java.minesweeper.bot.strategy.FlaggingStrategy;
+import src.main.java.minesweeper.bot.strategy.MoveBatch;
 import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.TilingState;
 
 
 /**
  * Probabilistic minesweeper strategy.
  * Algorithm inspired by: https://codereview.stackexchange.com/questions/54737/analyzing-minesweeper-probabilities
  */
-public class ProbabilisticStrategy<T extends MinesweeperTileable> extends BotStrategy<T> implements DecisionDetailsProvider<T>, FlaggingStrategy<T> {
+public class ProbabilisticStrategy<T extends MinesweeperTileable> extends BotStrategy<T> implements DecisionDetailsProvider<T>, FlaggingStrategy<T>, CancellableStrategy {
 
     private Random random;
-    private Solver<T> solver;
+    private volatile Solver<T> solver;
+    private volatile boolean cancelled; // until resume(), every new solver is cancelled before it solves
+    private SolverConfig config;
+    private ComponentCache componentCache;
 
     /**
-     * Takes in a random number generator.
+     * Takes in a random number generator and the options of the solver.
+     * If the config is persistent, one Solver is reused across the moves of a game, otherwise a new Solver is built
+     * every move. Solved components are cached across moves and games if the config has a cache capacity.
      * @param random the Random instance to use.
+     * @param config the options of the solver.
      */
-    public ProbabilisticStrategy(Random random) {
+    public ProbabilisticStrategy(Random random, SolverConfig config) {
         this.random = random;
+        this.config = config;
+        if (config.getComponentCacheCapacity() > 0) {
+            this.componentCache = new ComponentCache(config.getComponentCacheCapacity());
+        }
+    }
+
+    /**
+     * Takes in a random number generator, uses a persistent solver without limits and a cache of 4096 components.
+     * @param random the Random instance to use.
+     */
+    public ProbabilisticStrategy(Random random) {
+        this(random, persistentConfig());
     }
 
     /**
@@ -33,13 +55,42 @@ public class ProbabilisticStrategy<T extends MinesweeperTileable> extends BotStr
         this(new Random());
     }
 
+    @Override
+    public void setTilingState(TilingState<T> tilingState) {
+        super.setTilingState(tilingState);
+        solver = null; // solver state belongs to the previous game
+    }
+
     @Override
     public T tileToClear() {
-        solver = new Solver<>(tilingState);
+        if (!config.isPersistent() || solver == null) {
+            solver = new Solver<>(tilingState, config, componentCache);
+            // read after the solver is published, so a racing cancel() reaches either this check or the solver
+            if (cancelled) {
+                solver.cancel();
+            }
+        }
         T tile = solver.tileToClear(random);
         return tile;
     }
 
+    /**
+     * When the tile to clear comes from the deduction pass, the batch also holds every other tile it proved safe, and
+     * every tile it proved to have a mine. Otherwise it only holds the tile to clear.
+     */
+    @Override
+    public MoveBatch<T> nextMoves() {
+        T tile = tileToClear();
+        List<T> tilesToClear = new ArrayList<>();
+        tilesToClear.add(tile);
+        for (T safeTile : solver.deducedSafeTiles()) {
+            if (!safeTile.equals(tile)) {
+                tilesToClear.add(safeTile);
+            }
+        }
+        return new MoveBatch<>(tilesToClear, solver.deducedMines());
+    }
+
     @Override
     public List<T> tilesToFlag() {
         return solver.tilesToFlag();
@@ -50,6 +101,82 @@ public class ProbabilisticStrategy<T extends MinesweeperTileable> extends BotStr
         return solver.getProbabilityMap();
     }
 
+    /**
+     * Always call after tileToClear().
+     * @return the timings and counts of the solve of the last move.
+     */
+    public SolveProfile solveProfile() {
+        return solver.getProfile();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        Solver<T> current = solver;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public void resume() {
+        cancelled = false;
+        Solver<T> current = solver;
+        if (current != null) {
+            current.resume();
+        }
+    }
+
+    /**
+     * @return true if cancel() was called and resume() was not called since.
+     */
+    protected boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the cache of solved components shared by every move of this strategy, or null if it does not cache.
+     */
+    public ComponentCache getComponentCache() {
+        return componentCache;
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return true if the last move ran out of time or was cancelled, so its probabilities are only estimates.
+     */
+    public boolean isApproximate() {
+        return solver.isApproximate();
+    }
+
+    /**
+     * Limits the time of every later solve, after which the solver answers with approximate probabilities, see
+     * isApproximate(). Changes the config of this strategy.
+     * @param timeLimitMillis the time allowed per move, in milliseconds, or 0 for no limit.
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        config.setTimeLimitMillis(timeLimitMillis);
+    }
+
+    /**
+     * @return the solver of the last move, or null before the first move of a game.
+     */
+    protected Solver<T> getSolver() {
+        return solver;
+    }
+
+    /**
+     * @return the default config of this strategy, which keeps solver state between moves and caches solved
+     *         components. It has no time or node limit, so every move is exact and does not depend on the machine, see
+     *         setTimeLimitMillis() for callers that need a bounded move.
+     */
+    static SolverConfig persistentConfig() {
+        SolverConfig config = new SolverConfig();
+        config.setPersistent(true);
+        config.setComponentCacheCapacity(4096);
+        return config;
+    }
+
     @Override
     public String name() {
         return "PROBABILISTIC";
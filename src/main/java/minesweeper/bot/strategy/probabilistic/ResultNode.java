@@ -1,82 +1,278 @@
 package src.main.java.minesweeper.bot.strategy.probabilistic;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import src.main.java.minesweeper.logic.MinesweeperTileable;
 
 /**
  * Node of the solution tree.
  * Stores information about the rules and their associated alpha and beta values.
+ * TileSets and rules are given dense integer ids, and the state is kept in primitive arrays:
+ * the alpha of each TileSet (-1 if unknown), and for each rule the remaining sum, the number of tiles and the number
+ * of TileSets that are still unknown. A single ResultNode is mutated in place while searching, each assignment is
+ * pushed onto a trail so backtracking can undo it instead of copying the node at every branch.
+ * The unknown TileSets are kept in a binary heap ordered by a VariableOrdering, so the next TileSet to branch on is
+ * at the top. Assigning a TileSet removes it from the heap and undoing the assignment puts it back.
  */
 public class ResultNode<T extends MinesweeperTileable> {
 
-    private Map<TileSet<T>, Integer> tileSetResults; // tilesets and alphas
-    private List<TileSetRule<T>> rules; // keeps track of all simplified rules
+    private static final int UNKNOWN = -1;
+
+    // structure, shared between copies
+    private List<TileSet<T>> tileSets;
+    private Map<TileSet<T>, Integer> ids; // TileSet : id
+    private int[] sizes; // id : number of tiles
+    private int[][] ruleTileSets; // rule : ids of its TileSets
+    private int[][] tileSetRules; // id : rules containing it
+    private long[] priorities; // id : priority in the heap, lowest first
+    private int maxDegree; // largest number of rules containing a TileSet
+
+    // state
+    private int[] alphas; // id : alpha, or UNKNOWN
+    private int[] remaining; // rule : result minus the alphas already known
+    private int[] unknownTiles; // rule : number of tiles in its unknown TileSets
+    private int[] unknownTileSets; // rule : number of unknown TileSets
+    private int numUnknown;
+    private int knownMines; // sum of the known alphas
+    private int unknownTilesTotal; // number of tiles in unknown TileSets
+    private int remainingTotal; // sum of remaining over every rule
+
+    private int[] heap; // the first numUnknown entries are the ids of the unknown TileSets, the next one at index 0
+    private int[] heapIndices; // id : index in the heap, or -1 if known
+
+    private int[] trail; // ids in order of assignment
+    private int trailSize;
+
+    private int[] worklist; // rules touching a TileSet assigned since the last propagate()
+    private int worklistSize;
+    private boolean[] queued; // rule : true if it is in the worklist
 
     /**
-     * Create a new result node.
-     * @param tileSetReults the mapping of TileSet : alphas.
-     * @param rules the rules that are being evaluated.
+     * Create a new root result node where every alpha is unknown, branching on the smallest TileSet first.
+     * @param tileSets the TileSets (variables) being solved for.
+     * @param rules the rules that are being evaluated, over the given TileSets only.
      */
-    public ResultNode(Map<TileSet<T>, Integer> tileSetResults, List<TileSetRule<T>> rules) {
-        this.tileSetResults = tileSetResults;
-        this.rules = rules;
+    public ResultNode(List<TileSet<T>> tileSets, List<TileSetRule<T>> rules) {
+        this(tileSets, rules, VariableOrdering.SMALLEST_DOMAIN);
     }
 
     /**
-     * Copy constructor.
-     * Deep copies the rules but not the tileSets.
-     * @param other the ResultNode to deep copy.
+     * Create a new root result node where every alpha is unknown.
+     * @param tileSets the TileSets (variables) being solved for.
+     * @param rules the rules that are being evaluated, over the given TileSets only.
+     * @param ordering the order in which findNextUnknownTileSet() returns the unknown TileSets.
      */
-    public ResultNode(ResultNode<T> other) {
-        tileSetResults = new HashMap<>();
-        for (Map.Entry<TileSet<T>, Integer> entry : other.tileSetResults.entrySet()) {
-            tileSetResults.put(entry.getKey(), entry.getValue());
+    public ResultNode(List<TileSet<T>> tileSets, List<TileSetRule<T>> rules, VariableOrdering ordering) {
+        this.tileSets = tileSets;
+        int n = tileSets.size();
+        ids = new HashMap<>();
+        sizes = new int[n];
+        alphas = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids.put(tileSets.get(i), i);
+            sizes[i] = tileSets.get(i).size();
+            alphas[i] = UNKNOWN;
+        }
+        numUnknown = n;
+        for (int size : sizes) {
+            unknownTilesTotal += size;
+        }
+
+        int numRules = rules.size();
+        ruleTileSets = new int[numRules][];
+        remaining = new int[numRules];
+        unknownTiles = new int[numRules];
+        unknownTileSets = new int[numRules];
+        int[] numRulesPerTileSet = new int[n];
+        for (int r = 0; r < numRules; r++) {
+            TileSetRule<T> rule = rules.get(r);
+            ruleTileSets[r] = new int[rule.numTileSets()];
+            for (int j = 0; j < rule.numTileSets(); j++) {
+                int id = ids.get(rule.getTileSets().get(j));
+                ruleTileSets[r][j] = id;
+                numRulesPerTileSet[id]++;
+            }
+            remaining[r] = rule.getResult();
+            remainingTotal += rule.getResult();
+            unknownTiles[r] = rule.numTiles();
+            unknownTileSets[r] = rule.numTileSets();
+        }
+        tileSetRules = new int[n][];
+        for (int i = 0; i < n; i++) {
+            tileSetRules[i] = new int[numRulesPerTileSet[i]];
+            numRulesPerTileSet[i] = 0;
+        }
+        for (int r = 0; r < numRules; r++) {
+            for (int id : ruleTileSets[r]) {
+                tileSetRules[id][numRulesPerTileSet[id]++] = r;
+            }
+        }
+        priorities = new long[n];
+        for (int i = 0; i < n; i++) {
+            maxDegree = Math.max(maxDegree, tileSetRules[i].length);
+            priorities[i] = priority(ordering, sizes[i], tileSetRules[i].length);
+        }
+        heap = new int[n];
+        heapIndices = new int[n];
+        for (int i = 0; i < n; i++) {
+            heap[i] = i;
+            heapIndices[i] = i;
         }
-        rules = new ArrayList<>();
-        for (TileSetRule<T> rule : other.rules) {
-            rules.add(new TileSetRule<>(rule));
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(i);
         }
+        trail = new int[n];
+        trailSize = 0;
+        worklist = new int[numRules];
+        worklistSize = 0;
+        queued = new boolean[numRules];
     }
 
     /**
-     * A complete ResultNode is one such that each alpha is known. That is, there is no null alpha.
+     * Copy constructor, used to keep a complete node after the search moves on.
+     * Copies the state but shares the structure.
+     * @param other the ResultNode to copy.
+     */
+    public ResultNode(ResultNode<T> other) {
+        tileSets = other.tileSets;
+        ids = other.ids;
+        sizes = other.sizes;
+        ruleTileSets = other.ruleTileSets;
+        tileSetRules = other.tileSetRules;
+        priorities = other.priorities;
+        maxDegree = other.maxDegree;
+        alphas = other.alphas.clone();
+        remaining = other.remaining.clone();
+        unknownTiles = other.unknownTiles.clone();
+        unknownTileSets = other.unknownTileSets.clone();
+        numUnknown = other.numUnknown;
+        knownMines = other.knownMines;
+        unknownTilesTotal = other.unknownTilesTotal;
+        remainingTotal = other.remainingTotal;
+        heap = other.heap.clone();
+        heapIndices = other.heapIndices.clone();
+        trail = other.trail.clone();
+        trailSize = other.trailSize;
+        worklist = new int[other.worklist.length];
+        worklistSize = 0;
+        queued = new boolean[other.queued.length];
+    }
+
+    /**
+     * A complete ResultNode is one such that each alpha is known.
      * @return true if the resultNode is complete, false otherwise.
      */
     public boolean isComplete() {
-        for (Integer alpha : tileSetResults.values()) {
-            if (alpha == null) {
-                return false;
-            }
-        }
-        return true;
+        return numUnknown == 0;
     }
 
     /**
-     * Simplifies all the rules of this resultNode.
+     * Bounds the number of mines of every complete node below this one. Each mine lowers the remaining sum of at most
+     * maxDegree rules, so the unknown TileSets need at least the total remaining sum divided by maxDegree, and they
+     * can hold at most all of their tiles.
+     * Always call after a successful propagate(), when no remaining sum is negative.
+     * @param minMines the fewest mines a solution may have.
+     * @param maxMines the most mines a solution may have.
+     * @return false if no complete node below this one can have a number of mines within the bounds.
+     */
+    public boolean canHaveMines(int minMines, int maxMines) {
+        int minRequired = maxDegree == 0 ? 0 : (remainingTotal + maxDegree - 1) / maxDegree;
+        return knownMines + minRequired <= maxMines && knownMines + unknownTilesTotal >= minMines;
+    }
+
+    /**
+     * Simplifies all the rules of this resultNode, repeating until no rule has an effect.
      * @return true if the simplification was successful, false otherwise
      */
     public boolean simplifyAllRules() {
-        removeDuplicateRules();
-        for (TileSetRule<T> rule : rules) {
-            SimplifyResult simplifyResult = rule.simplify(this);
-            if (simplifyResult.isFailure()) {
+        for (int r = 0; r < ruleTileSets.length; r++) {
+            enqueue(r);
+        }
+        return propagate();
+    }
+
+    /**
+     * Simplifies only the rules touching a TileSet assigned since the last call, and the rules touching the TileSets
+     * those simplifications assign, until no rule has an effect.
+     * @return true if the simplification was successful, false otherwise
+     */
+    public boolean propagate() {
+        while (worklistSize > 0) {
+            int r = worklist[--worklistSize];
+            queued[r] = false;
+            if (simplify(r).isFailure()) {
+                clearWorklist();
                 return false;
             }
         }
         return true;
     }
 
+    private void enqueue(int r) {
+        if (!queued[r]) {
+            queued[r] = true;
+            worklist[worklistSize++] = r;
+        }
+    }
+
+    private void clearWorklist() {
+        while (worklistSize > 0) {
+            queued[worklist[--worklistSize]] = false;
+        }
+    }
+
     /**
-     * Removes duplicates rules from a this result node's rules.
+     * Simplifies a single rule. See README for details on simplification.
+     * @param r the id of the rule to simplify
+     * @return the result of the simplification
      */
-    private void removeDuplicateRules() {
-        rules = rules.stream().distinct().collect(Collectors.toList());
+    private SimplifyResult simplify(int r) {
+        // invalid simplifications
+        if (remaining[r] < 0) {
+            return SimplifyResult.NEGATIVE;
+        }
+        if (remaining[r] > unknownTiles[r]) {
+            return SimplifyResult.TOO_BIG;
+        }
+        if (unknownTileSets[r] == 0) {
+            return SimplifyResult.NO_EFFECT;
+        }
+
+        // three simplification scenarios:
+        // 1. something like [A] = X, clearly, TileSet [A] must have a value of X
+        if (unknownTileSets[r] == 1) {
+            for (int id : ruleTileSets[r]) {
+                if (alphas[id] == UNKNOWN) {
+                    put(id, remaining[r]);
+                    break;
+                }
+            }
+            return SimplifyResult.SIMPLIFIED;
+        }
+
+        // 2. something like [A] + [B] = 0. Clearly, both [A] and [B] must be 0
+        if (remaining[r] == 0) {
+            for (int id : ruleTileSets[r]) {
+                if (alphas[id] == UNKNOWN) {
+                    put(id, 0);
+                }
+            }
+            return SimplifyResult.SIMPLIFIED;
+        }
+
+        // 3. Something like [a + b + c] + [c + d] = 5. Clearly, every TileSet is full of mines.
+        if (remaining[r] == unknownTiles[r]) {
+            for (int id : ruleTileSets[r]) {
+                if (alphas[id] == UNKNOWN) {
+                    put(id, sizes[id]);
+                }
+            }
+            return SimplifyResult.SIMPLIFIED;
+        }
+        return SimplifyResult.NO_EFFECT;
     }
 
     /**
@@ -84,51 +280,205 @@ public class ResultNode<T extends MinesweeperTileable> {
      */
     public BigInteger numCombinations() {
         BigInteger product = BigInteger.ONE;
-        for (Map.Entry<TileSet<T>, Integer> entry : tileSetResults.entrySet()) {
-            TileSet<T> tileSet = entry.getKey();
-            int numMines = entry.getValue();
-            product = product.multiply(Combinatorics.combinations(tileSet.size(), numMines));
+        for (int i = 0; i < alphas.length; i++) {
+            product = product.multiply(Combinatorics.combinations(sizes[i], alphas[i]));
         }
         return product;
     }
 
+    /**
+     * @return the natural logarithm of the total number of combinations that can be done with this resultNode.
+     */
+    public double logNumCombinations() {
+        double sum = 0;
+        for (int i = 0; i < alphas.length; i++) {
+            sum += Combinatorics.logCombinations(sizes[i], alphas[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * @param id the id of a TileSet
+     * @return the alpha of the TileSet, or -1 if it is unknown.
+     */
+    public int get(int id) {
+        return alphas[id];
+    }
+
+    /**
+     * Always call on a complete ResultNode.
+     * @return the total number of mines across all TileSets of this resultNode.
+     */
+    public int numMines() {
+        int sum = 0;
+        for (int alpha : alphas) {
+            sum += alpha;
+        }
+        return sum;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (Map.Entry<TileSet<T>, Integer> entry : tileSetResults.entrySet()) {
-            sb.append("\n" + entry.getKey().hashCode() + " : " + entry.getValue());
+        for (int i = 0; i < alphas.length; i++) {
+            sb.append("\n" + tileSets.get(i).hashCode() + " : " + (alphas[i] == UNKNOWN ? null : alphas[i]));
         }
         return sb.toString();
     }
 
     /**
-     * @return the alpha of a given TileSet
+     * @return the alpha of a given TileSet, or null if it is unknown.
      */
     public Integer get(TileSet<T> tileSet) {
-        return tileSetResults.get(tileSet);
+        int alpha = alphas[ids.get(tileSet)];
+        return alpha == UNKNOWN ? null : alpha;
     }
 
     /**
-     * @return the smallest TileSet that has an unknown (null) alpha.
+     * @return the number of TileSets in this resultNode.
      */
-    public TileSet<T> findSmallestUnknownTileSet() {
-        TileSet<T> smallest = null;
-        for (Map.Entry<TileSet<T>, Integer> entry : tileSetResults.entrySet()) {
-            if (entry.getValue() == null) {
-                if (smallest == null || entry.getKey().size() < smallest.size()) {
-                    smallest = entry.getKey();
-                }
+    public int numTileSets() {
+        return alphas.length;
+    }
+
+    /**
+     * @return the total number of tiles across all TileSets of this resultNode.
+     */
+    public int numTiles() {
+        int sum = 0;
+        for (int size : sizes) {
+            sum += size;
+        }
+        return sum;
+    }
+
+    /**
+     * @param id the id of a TileSet
+     * @return the number of tiles in the TileSet.
+     */
+    public int size(int id) {
+        return sizes[id];
+    }
+
+    /**
+     * @return the id of the unknown TileSet to branch on next, or -1 if there is none.
+     */
+    public int findNextUnknownTileSet() {
+        return numUnknown == 0 ? -1 : heap[0];
+    }
+
+    /**
+     * @return the priority of a TileSet in the heap for the given ordering, lower priorities come first.
+     */
+    private static long priority(VariableOrdering ordering, int size, int degree) {
+        switch (ordering) {
+            case MOST_CONSTRAINED:
+                return ((long) -degree << 32) + size;
+            case MIN_DOMAIN_OVER_DEGREE:
+                // fixed point, a TileSet of n tiles has n + 1 alphas
+                return ((long) (size + 1) << 32) / Math.max(1, degree);
+            default:
+                return size;
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && a < b);
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        while (index > 0 && before(id, heap[(index - 1) / 2])) {
+            moveInHeap(heap[(index - 1) / 2], index);
+            index = (index - 1) / 2;
+        }
+        moveInHeap(id, index);
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        while (2 * index + 1 < numUnknown) {
+            int child = 2 * index + 1;
+            if (child + 1 < numUnknown && before(heap[child + 1], heap[child])) {
+                child++;
             }
+            if (!before(heap[child], id)) {
+                break;
+            }
+            moveInHeap(heap[child], index);
+            index = child;
+        }
+        moveInHeap(id, index);
+    }
+
+    private void moveInHeap(int id, int index) {
+        heap[index] = id;
+        heapIndices[id] = index;
+    }
+
+    private void removeFromHeap(int id) {
+        int index = heapIndices[id];
+        int lastId = heap[numUnknown - 1];
+        heapIndices[id] = -1;
+        numUnknown--;
+        if (lastId != id) {
+            moveInHeap(lastId, index);
+            siftDown(index);
+            siftUp(heapIndices[lastId]);
         }
-        return smallest;
+    }
+
+    private void addToHeap(int id) {
+        moveInHeap(id, numUnknown);
+        numUnknown++;
+        siftUp(heapIndices[id]);
     }
 
     /**
-     * Updates an alpha value.
-     * @param tileSet the tile set to update
+     * Assigns an alpha value to an unknown TileSet and updates every rule containing it.
+     * The rules are queued to be simplified by the next propagate().
+     * @param id the id of the tile set to update
      * @param numMines the alpha value of this tile set.
      */
-    public void put(TileSet<T> tileSet, Integer numMines) {
-        tileSetResults.put(tileSet, numMines);
+    public void put(int id, int numMines) {
+        alphas[id] = numMines;
+        for (int r : tileSetRules[id]) {
+            remaining[r] -= numMines;
+            unknownTiles[r] -= sizes[id];
+            unknownTileSets[r]--;
+            enqueue(r);
+        }
+        knownMines += numMines;
+        unknownTilesTotal -= sizes[id];
+        remainingTotal -= numMines * tileSetRules[id].length;
+        removeFromHeap(id);
+        trail[trailSize++] = id;
+    }
+
+    /**
+     * @return a marker of the current state, to pass to undo().
+     */
+    public int mark() {
+        return trailSize;
+    }
+
+    /**
+     * Undoes every assignment made since the given marker was taken.
+     * @param mark the marker returned by mark().
+     */
+    public void undo(int mark) {
+        while (trailSize > mark) {
+            int id = trail[--trailSize];
+            for (int r : tileSetRules[id]) {
+                remaining[r] += alphas[id];
+                unknownTiles[r] += sizes[id];
+                unknownTileSets[r]++;
+            }
+            knownMines -= alphas[id];
+            unknownTilesTotal += sizes[id];
+            remainingTotal += alphas[id] * tileSetRules[id].length;
+            alphas[id] = UNKNOWN;
+            addToHeap(id);
+        }
     }
 }
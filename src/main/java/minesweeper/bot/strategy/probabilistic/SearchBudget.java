@@ -0,0 +1,160 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits on one solve: a wall-clock deadline, a maximum number of nodes of the solution trees, and cancellation
+ * from another thread. The search checks the budget at every node and stops as soon as it runs out.
+ * A search counts its nodes in its own NodeCounter, which only adds them to the shared total every few nodes, so
+ * parallel tasks do not all write the same counter; the node limit and the clock are checked at each of these flushes.
+ * It also counts the pruned branches and the solutions of the solve for its SolveProfile.
+ */
+public class SearchBudget {
+    private static final int CLOCK_INTERVAL = 256;
+
+    private long deadline; // System.nanoTime() after which the budget runs out
+    private long nodeLimit;
+    private AtomicLong numNodes; // only written when a NodeCounter flushes
+    private LongAdder numPruned; // adders, since unlike nodes they are never read during the search
+    private LongAdder numSolutions;
+    private volatile boolean stopped;
+
+    /**
+     * Starts the clock.
+     * @param timeLimitMillis the time allowed from now, in milliseconds, or 0 for no limit.
+     * @param nodeLimit the number of nodes allowed, or 0 for no limit.
+     */
+    public SearchBudget(long timeLimitMillis, long nodeLimit) {
+        this.deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        this.numNodes = new AtomicLong();
+        this.numPruned = new LongAdder();
+        this.numSolutions = new LongAdder();
+    }
+
+    /**
+     * Counts one node of a solution tree directly in the shared total, for nodes outside the hot loop of a search,
+     * such as the few nodes where the search splits into parallel tasks.
+     * @return true if the search may visit the node, false if the budget ran out.
+     */
+    public boolean countNode() {
+        if (stopped) {
+            return false;
+        }
+        addNodes(1);
+        return !stopped;
+    }
+
+    /**
+     * @return a new counter for the nodes of one search or task, to be flushed when it is done.
+     */
+    public NodeCounter newNodeCounter() {
+        return new NodeCounter();
+    }
+
+    /**
+     * Adds nodes to the shared total, and stops the budget if it went over the node limit or the deadline passed.
+     */
+    private void addNodes(int n) {
+        long total = numNodes.addAndGet(n);
+        if (total > nodeLimit || (total / CLOCK_INTERVAL != (total - n) / CLOCK_INTERVAL && System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * @return true if the budget ran out or was cancelled.
+     */
+    public boolean isExhausted() {
+        if (!stopped && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Unlike isExhausted(), does not read the clock, so a search that finished all its nodes is not reported as
+     * stopped because the deadline passed right after.
+     * @return true if a node was refused or the search was cancelled.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Stops the search at its next node. Can be called from any thread.
+     */
+    public void cancel() {
+        stopped = true;
+    }
+
+    /**
+     * @return the number of nodes counted so far.
+     */
+    public long getNumNodes() {
+        return numNodes.get();
+    }
+
+    /**
+     * Counts one branch cut before being visited.
+     */
+    public void countPruned() {
+        numPruned.increment();
+    }
+
+    /**
+     * Counts one solution reached.
+     */
+    public void countSolution() {
+        numSolutions.increment();
+    }
+
+    /**
+     * @return the number of branches cut so far.
+     */
+    public long getNumPruned() {
+        return numPruned.sum();
+    }
+
+    /**
+     * @return the number of solutions reached so far.
+     */
+    public long getNumSolutions() {
+        return numSolutions.sum();
+    }
+
+    /**
+     * Counts the nodes of one search or task, owned by a single thread. The nodes are added to the budget every
+     * CLOCK_INTERVAL nodes and when flushed, so a search may go up to CLOCK_INTERVAL nodes over the node limit, and
+     * getNumNodes() only includes the nodes of a counter once it is flushed.
+     */
+    public class NodeCounter {
+        private int pending;
+
+        private NodeCounter() {}
+
+        /**
+         * Counts one node of a solution tree.
+         * @return true if the search may visit the node, false if the budget ran out.
+         */
+        public boolean countNode() {
+            if (stopped) {
+                return false;
+            }
+            if (++pending == CLOCK_INTERVAL) {
+                flush();
+            }
+            return !stopped;
+        }
+
+        /**
+         * Adds the nodes counted since the last flush to the budget.
+         */
+        public void flush() {
+            if (pending > 0) {
+                addNodes(pending);
+                pending = 0;
+            }
+        }
+    }
+}
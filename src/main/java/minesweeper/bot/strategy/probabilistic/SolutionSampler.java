@@ -0,0 +1,77 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.Random;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Samples the solution tree of one component instead of enumerating it.
+ * Each sample is a random descent from the root: at every level, the alpha of the smallest unknown TileSet is picked
+ * uniformly among the values that survive propagation, and the leaf is added to the tally with an importance weight
+ * equal to the product of the number of choices along the way. The expected tally of one descent is the exact tally,
+ * so the sums of many descents estimate it up to a constant factor, which cancels out in the probabilities.
+ */
+public class SolutionSampler<T extends MinesweeperTileable> {
+    private int maxMines;
+    private Random random;
+    private ResultNode<T> root;
+    private int[] choices;
+
+    /**
+     * @param component the component to sample.
+     * @param maxMines the total number of mines in the game, no TileSet can have more.
+     * @param random the Random instance to pick branches with.
+     */
+    public SolutionSampler(FrontierComponent<T> component, int maxMines, Random random) {
+        this.maxMines = maxMines;
+        this.random = random;
+        this.root = new ResultNode<>(component.getTileSets(), component.getRules());
+        if (!root.simplifyAllRules()) {
+            root = null; // the rules contradict each other, every descent is a dead end
+        }
+        int largest = 0;
+        for (TileSet<T> tileSet : component.getTileSets()) {
+            largest = Math.max(largest, tileSet.size());
+        }
+        this.choices = new int[Math.min(largest, maxMines) + 1];
+    }
+
+    /**
+     * Makes one random descent and adds the solution it reaches to the tally.
+     * A descent can reach a dead end, in which case it adds nothing, which still counts as a sample of weight 0.
+     * @param tally a log-space tally of the component.
+     * @return true if a solution was added.
+     */
+    public boolean sample(SolutionTally<T> tally) {
+        if (root == null) {
+            return false;
+        }
+        int rootMark = root.mark();
+        double logImportance = 0;
+        boolean found = false;
+        while (true) {
+            if (root.isComplete()) {
+                tally.addSample(root, logImportance);
+                found = true;
+                break;
+            }
+            int smallest = root.findNextUnknownTileSet();
+            int numChoices = 0;
+            for (int i = 0; i <= Math.min(root.size(smallest), maxMines); i++) {
+                int mark = root.mark();
+                root.put(smallest, i);
+                if (root.propagate()) {
+                    choices[numChoices++] = i;
+                }
+                root.undo(mark);
+            }
+            if (numChoices == 0) {
+                break;
+            }
+            logImportance += Math.log(numChoices);
+            root.put(smallest, choices[random.nextInt(numChoices)]);
+            root.propagate(); // already known to succeed
+        }
+        root.undo(rootMark);
+        return found;
+    }
+}
@@ -0,0 +1,172 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Builds the solution tree of one component, see README for details.
+ * The search branches on the unknown TileSet chosen by a VariableOrdering. Every complete node is added to a SolutionTally as soon as it
+ * is reached, and only kept in a SolutionSet if asked to. Branches whose solutions would all fall outside the mine range
+ * of the component are cut as soon as the bounds of ResultNode.canHaveMines() show it.
+ * The top levels of the tree of a large component are split into tasks with their own tallies, which are merged in
+ * branch order. The tasks run on the common ForkJoinPool in parallel mode, and one after the other otherwise, so both
+ * modes add up the same numbers in the same order and give identical results, on any number of cores.
+ */
+public class SolutionSearch<T extends MinesweeperTileable> implements ComponentCounter<T> {
+
+    /** Components with fewer TileSets than this are never split */
+    private static final int SPLIT_THRESHOLD = 12;
+
+    /**
+     * Number of levels to split, enough to give every worker of a pool of up to 16 a few tasks to steal. It is fixed
+     * rather than derived from the pool, so the order of the sums, and their rounding, is the same on every machine.
+     */
+    private static final int SPLIT_DEPTH = 6;
+
+    private int maxMines;
+    private WeightingMode weightingMode;
+    private boolean parallel;
+    private boolean keepSolutions;
+    private VariableOrdering ordering;
+    private SearchBudget budget;
+
+    // mine range of the component being searched, see FrontierComponent.getMinMines()
+    private int rangeMin;
+    private int rangeMax;
+
+    /**
+     * @param maxMines the total number of mines in the game, no TileSet can have more.
+     * @param weightingMode how to tally solutions.
+     * @param parallel true to run the tasks of large components on the common ForkJoinPool.
+     * @param keepSolutions true to also keep every solution in a SolutionSet, for debugging.
+     * @param ordering which unknown TileSet to branch on next.
+     * @param budget the budget shared by every search of the solve.
+     */
+    public SolutionSearch(int maxMines, WeightingMode weightingMode, boolean parallel, boolean keepSolutions, VariableOrdering ordering, SearchBudget budget) {
+        this.maxMines = maxMines;
+        this.weightingMode = weightingMode;
+        this.parallel = parallel;
+        this.keepSolutions = keepSolutions;
+        this.ordering = ordering;
+        this.budget = budget;
+    }
+
+    /**
+     * Searches the solution tree of a component and stores the tally (and solutions, if kept) in the component.
+     * If the budget runs out, the tally only holds the solutions found so far.
+     * @param component the component to solve.
+     * @return true if the whole tree was searched, false if the budget ran out.
+     */
+    @Override
+    public boolean count(FrontierComponent<T> component) {
+        ResultNode<T> root = new ResultNode<>(component.getTileSets(), component.getRules(), ordering);
+        SearchTask task = new SearchTask(root, 0);
+        rangeMin = component.getMinMines();
+        rangeMax = component.getMaxMines();
+        if (root.simplifyAllRules() && root.canHaveMines(rangeMin, rangeMax)) {
+            if (parallel && root.numTileSets() >= SPLIT_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                task.compute();
+            }
+        }
+        component.setTally(task.tally, weightingMode);
+        component.setSolutionSet(task.solutionSet);
+        return !budget.isStopped();
+    }
+
+    /**
+     * Recursive helper method to solve possibilities and fill out the tally.
+     * Pre-order traversal of the solution tree. The node is modified in place and restored before returning.
+     */
+    private void search(ResultNode<T> current, SolutionTally<T> tally, SolutionSet<T> solutionSet, SearchBudget.NodeCounter nodes) {
+        if (!nodes.countNode()) {
+            return;
+        }
+        // is a leaf if every alpha is known
+        if (current.isComplete()) {
+            budget.countSolution();
+            tally.add(current);
+            if (solutionSet != null) {
+                solutionSet.addResultNode(new ResultNode<>(current));
+            }
+            return;
+        }
+        // find the next "unknown" node
+        int next = current.findNextUnknownTileSet();
+        // iterate over the possibilities e.g. a set with 2 tiles could have 0, 1, or 2 mines in it
+        for (int i = 0; i <= Math.min(current.size(next), maxMines); i++) {
+            int mark = current.mark();
+            // attempt to solve the rules supposing that alpha for next = i
+            current.put(next, i);
+            // simplify, and only proceed if simplifications were successful and the mines can still fit
+            if (current.propagate() && current.canHaveMines(rangeMin, rangeMax)) {
+                search(current, tally, solutionSet, nodes);
+            } else {
+                budget.countPruned();
+            }
+            // backtrack
+            current.undo(mark);
+        }
+    }
+
+    /**
+     * Searches one subtree into its own tally. Above the split depth, each child gets its own copy of the node and its
+     * own task, whose tallies are added to this task's tally in branch order once every child is done.
+     */
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ResultNode<T> node;
+        private int depth;
+        private SolutionTally<T> tally;
+        private SolutionSet<T> solutionSet;
+
+        public SearchTask(ResultNode<T> node, int depth) {
+            this.node = node;
+            this.depth = depth;
+            this.tally = new SolutionTally<>(node.numTileSets(), Math.min(maxMines, node.numTiles()), weightingMode);
+            this.solutionSet = keepSolutions ? new SolutionSet<>() : null;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= SPLIT_DEPTH || node.numTileSets() < SPLIT_THRESHOLD || node.isComplete()) {
+                SearchBudget.NodeCounter nodes = budget.newNodeCounter();
+                search(node, tally, solutionSet, nodes);
+                nodes.flush();
+                return;
+            }
+            if (!budget.countNode()) {
+                return;
+            }
+            int next = node.findNextUnknownTileSet();
+            List<SearchTask> children = new ArrayList<>();
+            for (int i = 0; i <= Math.min(node.size(next), maxMines); i++) {
+                ResultNode<T> child = new ResultNode<>(node);
+                child.put(next, i);
+                if (child.propagate() && child.canHaveMines(rangeMin, rangeMax)) {
+                    children.add(new SearchTask(child, depth + 1));
+                } else {
+                    budget.countPruned();
+                }
+            }
+            if (parallel) {
+                invokeAll(children);
+            } else {
+                for (SearchTask child : children) {
+                    child.compute();
+                }
+            }
+            for (SearchTask child : children) {
+                tally.addAll(child.tally);
+                if (solutionSet != null) {
+                    solutionSet.addAll(child.solutionSet);
+                }
+            }
+        }
+    }
+}
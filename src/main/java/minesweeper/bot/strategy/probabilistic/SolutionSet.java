@@ -1,14 +1,15 @@
 package src.main.java.minesweeper.bot.strategy.probabilistic;
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import src.main.java.minesweeper.logic.MinesweeperTileable;
 
 /**
  * Stores a list of all solutions (ResultNodes) for a game state.
+ * Only built for debugging, see SolverConfig.setKeepSolutions().
  */
-public class SolutionSet<T extends MinesweeperTileable> {
+public class SolutionSet<T extends MinesweeperTileable> implements Iterable<ResultNode<T>> {
     private List<ResultNode<T>> resultNodes;
 
     /**
@@ -25,6 +26,13 @@ public class SolutionSet<T extends MinesweeperTileable> {
         resultNodes.add(results);
     }
 
+    /**
+     * Add every solution of another solution set, in order.
+     */
+    public void addAll(SolutionSet<T> other) {
+        resultNodes.addAll(other.resultNodes);
+    }
+
     /**
      * @param index the index of the result node we want to see
      * @param tileSet the TileSet we want to get the alpha of
@@ -41,28 +49,9 @@ public class SolutionSet<T extends MinesweeperTileable> {
         return resultNodes.size();
     }
 
-    /**
-     * @return a list of the number of mine configurations per solution.
-     */
-    public List<BigInteger> numCombinationsPerSolution() {
-        List<BigInteger> result = new ArrayList<>();
-        for (ResultNode<T> resultNode : resultNodes) {
-            result.add(resultNode.numCombinations());
-        }
-        return result;
-    }
-
-    /**
-     * Sum of all combinations across all possible solutions.
-     * @return the sum of of combinations across all result nodes.
-     */
-    public BigInteger totalNumCombinations() {
-        BigInteger sum = BigInteger.ZERO;
-        List<BigInteger> result = numCombinationsPerSolution();
-        for (BigInteger i : result) {
-            sum = sum.add(i);
-        }
-        return sum;
+    @Override
+    public Iterator<ResultNode<T>> iterator() {
+        return resultNodes.iterator();
     }
 
     @Override
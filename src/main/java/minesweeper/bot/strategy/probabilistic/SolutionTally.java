@@ -0,0 +1,201 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+import java.math.BigInteger;
+
+import src.main.java.minesweeper.logic.MinesweeperTileable;
+
+/**
+ * Running totals of the solutions of one component, indexed by the number of mines m in the component:
+ * <ul>
+ * <li> the weight, i.e. the number of mine configurations, of all solutions with m mines
+ * <li> for each TileSet, the sum over those solutions of (weight * alpha)
+ * </ul>
+ * Solutions are added as soon as they are found, so memory only depends on the number of TileSets.
+ * In log-space, sums are kept relative to the largest solution weight seen so far, and rescaled whenever a larger one
+ * comes in, so nothing overflows.
+ */
+public class SolutionTally<T extends MinesweeperTileable> {
+    private WeightingMode weightingMode;
+    private int numTileSets;
+    private int length;
+
+    // WeightingMode.EXACT
+    private BigInteger[] weights;
+    private BigInteger[][] weightedMines; // id : m : sum
+
+    // WeightingMode.LOG_SPACE, the true sums are the scaled sums times e^logScale
+    private double[] scaledWeights;
+    private double[][] scaledWeightedMines; // id : m : sum
+    private double logScale;
+
+    /**
+     * Initializes an empty tally.
+     * @param numTileSets the number of TileSets in the component.
+     * @param maxMines the largest number of mines to keep, solutions with more mines are dropped.
+     * @param weightingMode whether to tally exactly or in log-space.
+     */
+    public SolutionTally(int numTileSets, int maxMines, WeightingMode weightingMode) {
+        this.weightingMode = weightingMode;
+        this.numTileSets = numTileSets;
+        this.length = maxMines + 1;
+        if (weightingMode == WeightingMode.EXACT) {
+            weights = new BigInteger[length];
+            weightedMines = new BigInteger[numTileSets][length];
+            for (int m = 0; m < length; m++) {
+                weights[m] = BigInteger.ZERO;
+                for (int id = 0; id < numTileSets; id++) {
+                    weightedMines[id][m] = BigInteger.ZERO;
+                }
+            }
+        } else {
+            scaledWeights = new double[length];
+            scaledWeightedMines = new double[numTileSets][length];
+            logScale = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Adds a complete ResultNode to the tally.
+     * @param resultNode the solution to add
+     */
+    public void add(ResultNode<T> resultNode) {
+        int numMines = resultNode.numMines();
+        if (numMines >= length) {
+            return;
+        }
+        if (weightingMode == WeightingMode.EXACT) {
+            BigInteger numCombinations = resultNode.numCombinations();
+            weights[numMines] = weights[numMines].add(numCombinations);
+            for (int id = 0; id < numTileSets; id++) {
+                int alpha = resultNode.get(id);
+                if (alpha > 0) {
+                    weightedMines[id][numMines] = weightedMines[id][numMines].add(numCombinations.multiply(BigInteger.valueOf(alpha)));
+                }
+            }
+        } else {
+            double logNumCombinations = resultNode.logNumCombinations();
+            if (logNumCombinations > logScale) {
+                rescale(logNumCombinations);
+            }
+            double weight = Math.exp(logNumCombinations - logScale);
+            scaledWeights[numMines] += weight;
+            for (int id = 0; id < numTileSets; id++) {
+                scaledWeightedMines[id][numMines] += weight * resultNode.get(id);
+            }
+        }
+    }
+
+    /**
+     * Adds a complete ResultNode to the tally with an extra importance weight, used when solutions are sampled
+     * instead of enumerated. Always call on a log-space tally.
+     * @param resultNode the sampled solution to add
+     * @param logImportance the natural logarithm of the importance weight of the sample
+     */
+    public void addSample(ResultNode<T> resultNode, double logImportance) {
+        int numMines = resultNode.numMines();
+        if (numMines >= length) {
+            return;
+        }
+        double logWeight = resultNode.logNumCombinations() + logImportance;
+        if (logWeight > logScale) {
+            rescale(logWeight);
+        }
+        double weight = Math.exp(logWeight - logScale);
+        scaledWeights[numMines] += weight;
+        for (int id = 0; id < numTileSets; id++) {
+            scaledWeightedMines[id][numMines] += weight * resultNode.get(id);
+        }
+    }
+
+    /**
+     * Always call on a log-space tally.
+     * @return true if no solution was added to this tally.
+     */
+    public boolean isEmpty() {
+        return logScale == Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Adds every solution of another tally of the same component.
+     * @param other the tally to add
+     */
+    public void addAll(SolutionTally<T> other) {
+        if (weightingMode == WeightingMode.EXACT) {
+            for (int m = 0; m < length; m++) {
+                weights[m] = weights[m].add(other.weights[m]);
+                for (int id = 0; id < numTileSets; id++) {
+                    weightedMines[id][m] = weightedMines[id][m].add(other.weightedMines[id][m]);
+                }
+            }
+        } else {
+            if (other.logScale == Double.NEGATIVE_INFINITY) {
+                return;
+            }
+            if (other.logScale > logScale) {
+                rescale(other.logScale);
+            }
+            double factor = Math.exp(other.logScale - logScale);
+            for (int m = 0; m < length; m++) {
+                scaledWeights[m] += other.scaledWeights[m] * factor;
+                for (int id = 0; id < numTileSets; id++) {
+                    scaledWeightedMines[id][m] += other.scaledWeightedMines[id][m] * factor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the log-space reference to a larger value.
+     */
+    private void rescale(double newLogScale) {
+        double factor = Math.exp(logScale - newLogScale);
+        for (int m = 0; m < length; m++) {
+            scaledWeights[m] *= factor;
+            for (int id = 0; id < numTileSets; id++) {
+                scaledWeightedMines[id][m] *= factor;
+            }
+        }
+        logScale = newLogScale;
+    }
+
+    /**
+     * Always call on an exact tally.
+     * @return the number of mine configurations, indexed by number of mines.
+     */
+    public BigInteger[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Always call on an exact tally.
+     * @param id the id of a TileSet
+     * @return the weighted mine counts of the TileSet, indexed by number of mines.
+     */
+    public BigInteger[] getWeightedMines(int id) {
+        return weightedMines[id];
+    }
+
+    /**
+     * Always call on a log-space tally.
+     * @return the natural logarithm of the number of mine configurations, indexed by number of mines.
+     */
+    public double[] getLogWeights() {
+        return toLogSpace(scaledWeights);
+    }
+
+    /**
+     * Always call on a log-space tally.
+     * @param id the id of a TileSet
+     * @return the natural logarithm of the weighted mine counts of the TileSet, indexed by number of mines.
+     */
+    public double[] getLogWeightedMines(int id) {
+        return toLogSpace(scaledWeightedMines[id]);
+    }
+
+    private double[] toLogSpace(double[] scaled) {
+        double[] result = new double[length];
+        for (int m = 0; m < length; m++) {
+            result[m] = Math.log(scaled[m]) + logScale;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * The steps of one solve, in order, timed by SolveProfile. A solve that ends in the deduction pass skips the last
+ * three.
+ */
+public enum SolvePhase {
+    /** Grouping uncleared tiles into TileSets, see Solver.createTileSets() */
+    CREATE_TILE_SETS,
+    /** One rule per numbered tile and the global rule, see Solver.createRules() */
+    CREATE_RULES,
+    /** Looking for a safe TileSet without counting, see Deduction */
+    DEDUCTION,
+    /** Splitting the rules into independent components */
+    CREATE_COMPONENTS,
+    /** Counting the solutions of every component, see ComponentCounter */
+    BUILD_SOLUTION_SET,
+    /** Combining the components with the global rule into probabilities, and picking the tile */
+    CALCULATE_PROBABILITIES
+}
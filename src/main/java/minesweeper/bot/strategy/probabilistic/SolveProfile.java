@@ -0,0 +1,186 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * Where one solve, or many added together, spent its time: nanoseconds per SolvePhase, the size of the model, and the
+ * work of the counting. Profiling only reads the clock between phases and increments a few counters, so it is always on.
+ * Nodes are those counted by the SearchBudget, pruned nodes are branches cut by propagation or the mine range, and
+ * solutions are the complete assignments reached by SolutionSearch. The other engines count without listing solutions.
+ */
+public class SolveProfile {
+    private long numSolves;
+    private long[] phaseNanos;
+    private long numTileSets;
+    private long numRules;
+    private long numComponents;
+    private long numNodes;
+    private long numPruned;
+    private long numSolutions;
+    private long numDeduced;
+    private long numApproximate;
+
+    /**
+     * Initializes an empty profile, to add the profiles of solves to.
+     */
+    public SolveProfile() {
+        phaseNanos = new long[SolvePhase.values().length];
+    }
+
+    /**
+     * @return an empty profile of one solve, filled in by the Solver as it goes.
+     */
+    static SolveProfile ofOneSolve() {
+        SolveProfile profile = new SolveProfile();
+        profile.numSolves = 1;
+        return profile;
+    }
+
+    /**
+     * Adds the time since the start of a phase to it.
+     * @param phase the phase that just ended
+     * @param start the System.nanoTime() at which it started
+     * @return the System.nanoTime() at which it ended, the start of the next phase.
+     */
+    long lap(SolvePhase phase, long start) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - start;
+        return now;
+    }
+
+    void recordModel(int numTileSets, int numRules) {
+        this.numTileSets += numTileSets;
+        this.numRules += numRules;
+    }
+
+    void recordComponents(int numComponents) {
+        this.numComponents += numComponents;
+    }
+
+    void recordDeduced() {
+        numDeduced++;
+    }
+
+    void recordSearch(long numNodes, long numPruned, long numSolutions, boolean approximate) {
+        this.numNodes += numNodes;
+        this.numPruned += numPruned;
+        this.numSolutions += numSolutions;
+        if (approximate) {
+            numApproximate++;
+        }
+    }
+
+    /**
+     * Adds every count of another profile to this one.
+     * @param other the profile to add, unchanged.
+     */
+    public void add(SolveProfile other) {
+        numSolves += other.numSolves;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] += other.phaseNanos[i];
+        }
+        numTileSets += other.numTileSets;
+        numRules += other.numRules;
+        numComponents += other.numComponents;
+        numNodes += other.numNodes;
+        numPruned += other.numPruned;
+        numSolutions += other.numSolutions;
+        numDeduced += other.numDeduced;
+        numApproximate += other.numApproximate;
+    }
+
+    /**
+     * @return the number of solves in this profile.
+     */
+    public long getNumSolves() {
+        return numSolves;
+    }
+
+    /**
+     * @param phase a phase of the solve
+     * @return the nanoseconds spent in the phase.
+     */
+    public long getPhaseNanos(SolvePhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the nanoseconds spent in every phase.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : phaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of TileSets built.
+     */
+    public long getNumTileSets() {
+        return numTileSets;
+    }
+
+    /**
+     * @return the number of rules built, not counting the global rule.
+     */
+    public long getNumRules() {
+        return numRules;
+    }
+
+    /**
+     * @return the number of components built, none by solves that ended in the deduction pass.
+     */
+    public long getNumComponents() {
+        return numComponents;
+    }
+
+    /**
+     * @return the number of solution tree nodes (or sweep states, or subproblems) visited.
+     */
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return the number of branches cut before being visited.
+     */
+    public long getNumPruned() {
+        return numPruned;
+    }
+
+    /**
+     * @return the number of solutions reached by SolutionSearch.
+     */
+    public long getNumSolutions() {
+        return numSolutions;
+    }
+
+    /**
+     * @return the number of solves whose tile came from the deduction pass.
+     */
+    public long getNumDeduced() {
+        return numDeduced;
+    }
+
+    /**
+     * @return the number of solves that ran out of budget or were cancelled.
+     */
+    public long getNumApproximate() {
+        return numApproximate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        long total = getTotalNanos();
+        sb.append(String.format("%d solves (%d deduced, %d approximate), %.3f ms%n", numSolves, numDeduced,
+            numApproximate, total / 1e6));
+        for (SolvePhase phase : SolvePhase.values()) {
+            long nanos = getPhaseNanos(phase);
+            sb.append(String.format("  %-24s %12.3f ms %5.1f%%%n", phase, nanos / 1e6, total == 0 ? 0.0 : 100.0 * nanos / total));
+        }
+        sb.append(String.format("  %d TileSets, %d rules, %d components%n", numTileSets, numRules, numComponents));
+        sb.append(String.format("  %d nodes, %d pruned, %d solutions", numNodes, numPruned, numSolutions));
+        return sb.toString();
+    }
+}
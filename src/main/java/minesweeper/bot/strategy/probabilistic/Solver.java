@@ -2,13 +2,19 @@ package src.main.java.minesweeper.bot.strategy.probabilistic;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.Neighborhood;
 import src.main.java.minesweeper.logic.TilingState;
 
 
@@ -18,152 +24,608 @@ import src.main.java.minesweeper.logic.TilingState;
  * @param <T> the generic Tileable object this bot can solve minesweeper games for.
  */
 public class Solver<T extends MinesweeperTileable> {
+    /** The lowest probability of an approximate solve, so that a guess is never mistaken for a safe tile */
+    private static final double MIN_APPROXIMATE_PROBABILITY = 1e-6;
+
     private List<TileSet<T>> tileSets;
     private List<TileSetRule<T>> rules; // map of ruleTile : TileSetRule
-    private SolutionSet<T> solutionSet;
+    private TileSetRule<T> globalRule;
+    private List<FrontierComponent<T>> components;
+    private List<TileSet<T>> unconstrainedTileSets; // TileSets that only appear in the global rule
+    private List<TileSet<T>> evaluatedTileSets; // TileSets with a probability from this solve
+    private List<TileSet<T>> deducedSafeTileSets; // TileSets the deduction pass proved safe in this solve
+    private List<TileSet<T>> deducedMinedTileSets; // TileSets the deduction pass proved full of mines in this solve
     private TilingState<T> tilingState;
+    private int[] neighborIndices = new int[Neighborhood.MAX_NEIGHBORS]; // scratch space of outOfPlaySignature()
+
+    private SolverConfig config;
+    private Map<Set<TileSet<T>>, FrontierComponent<T>> solvedComponents; // signature : component of the last solve, if persistent
+
+    private ComponentCache cache; // shared with other solvers, may be null
+    private volatile SearchBudget budget; // budget of the current solve
+    private volatile boolean cancelled; // inherited by the budget of every solve until resume()
+    private boolean approximate;
+    private double logTotalWeight; // natural log of the number of configurations of the last solve
+    private SolveProfile profile; // of the last solve
 
     /**
-     * Initializes the solver with the minesweeper gamestate to solve, and empty tileSets, rules, and solutionSet.
+     * Initializes the solver with the minesweeper gamestate to solve, and empty tileSets, rules, and components.
      * @param tilingState the game state to initialize the solver with
      */
     public Solver(TilingState<T> tilingState) {
+        this(tilingState, new SolverConfig());
+    }
+
+    /**
+     * Initializes the solver with the minesweeper gamestate to solve.
+     * A persistent solver can be reused for every move of the same game. Only the components whose TileSets changed
+     * since the last move are enumerated again, the others reuse their previous tallies.
+     * @param tilingState the game state to initialize the solver with
+     * @param config the options of this solver
+     */
+    public Solver(TilingState<T> tilingState, SolverConfig config) {
+        this(tilingState, config, null);
+    }
+
+    /**
+     * Initializes the solver with the minesweeper gamestate to solve and a cache of solved components.
+     * Components whose ComponentKey is in the cache are not enumerated, and newly solved ones are added to it.
+     * @param tilingState the game state to initialize the solver with
+     * @param config the options of this solver
+     * @param cache the cache to share with other solvers, or null to not cache components.
+     */
+    public Solver(TilingState<T> tilingState, SolverConfig config, ComponentCache cache) {
         this.tilingState = tilingState;
+        this.cache = cache;
+        this.config = config;
         this.tileSets = new ArrayList<>();
         this.rules = new ArrayList<>();
-        this.solutionSet = new SolutionSet<>();
+        this.components = new ArrayList<>();
+        this.unconstrainedTileSets = new ArrayList<>();
+        this.evaluatedTileSets = new ArrayList<>();
+        this.deducedSafeTileSets = new ArrayList<>();
+        this.deducedMinedTileSets = new ArrayList<>();
+        this.solvedComponents = new HashMap<>();
+        this.budget = new SearchBudget(0, 0);
+    }
+
+    /**
+     * Clears the TileSets, rules and components of the previous solve.
+     */
+    private void reset() {
+        tileSets.clear();
+        rules.clear();
+        components.clear();
+        unconstrainedTileSets.clear();
+        evaluatedTileSets.clear();
+        deducedSafeTileSets.clear();
+        deducedMinedTileSets.clear();
     }
 
     /**
      * Creates all TileSets (variables) for the given minesweeper gamestate.
+     * Tiles are grouped in one pass by a key encoding their out-of-play neighbors, see outOfPlaySignature().
      */
     private void createTileSets() {
-        int numRows = tilingState.getNumRows();
-        int numCols = tilingState.getNumColumns();
-
-        for (int i = 0; i < numRows; i++) {
-            for (int j = 0; j < numCols; j++) {
-                // only add the tile to the tileset if it is not cleared and not flagged
-                if (validTileForTileSet(tilingState.get(i, j))) {
-                    boolean added = false;
-                    for (TileSet<T> tileSet : tileSets) {
-                        added = tileSet.add(tilingState.get(i, j));
-                        if (added) {
-                            break;
-                        }
-                    }
-                    if (!added) {
-                        tileSets.add(new TileSet<>(tilingState.get(i, j), tilingState));
-                    }
+        int numTiles = tilingState.getNumRows() * tilingState.getNumColumns();
+        Map<Long, TileSet<T>> tileSetsBySignature = new HashMap<>();
+
+        for (int index = 0; index < numTiles; index++) {
+            T tile = tilingState.get(index);
+            // only add the tile to the tileset if it is not cleared and not flagged
+            if (validTileForTileSet(tile)) {
+                long signature = outOfPlaySignature(index);
+                TileSet<T> tileSet = tileSetsBySignature.get(signature);
+                if (tileSet == null) {
+                    tileSet = new TileSet<>(tile, tilingState);
+                    tileSetsBySignature.put(signature, tileSet);
+                    tileSets.add(tileSet);
+                } else {
+                    tileSet.addWithSameSignature(tile);
                 }
             }
         }
     }
 
+    /**
+     * Encodes the out-of-play (cleared or flagged) neighbors of a position into a single key.
+     * All neighbors lie within a 3x3 box, so the set is encoded as the index of the top-left corner of its
+     * bounding box and a 9-bit mask of the positions within the 3x3 box starting there.
+     * Two positions have the same key if and only if they have the same out-of-play neighbors.
+     * @return the key, or -1 if there are no out-of-play neighbors.
+     */
+    private long outOfPlaySignature(int index) {
+        int numColumns = tilingState.getNumColumns();
+        int numNeighbors = tilingState.getNeighborhood().neighbors(index, neighborIndices);
+        int numOutOfPlay = 0;
+        int minRow = Integer.MAX_VALUE;
+        int minColumn = Integer.MAX_VALUE;
+        for (int k = 0; k < numNeighbors; k++) {
+            int neighbor = neighborIndices[k];
+            if (tilingState.isOutOfPlay(neighbor)) {
+                neighborIndices[numOutOfPlay++] = neighbor;
+                minRow = Math.min(minRow, neighbor / numColumns);
+                minColumn = Math.min(minColumn, neighbor % numColumns);
+            }
+        }
+        if (numOutOfPlay == 0) {
+            return -1;
+        }
+        int mask = 0;
+        for (int k = 0; k < numOutOfPlay; k++) {
+            int neighbor = neighborIndices[k];
+            mask |= 1 << ((neighbor / numColumns - minRow) * 3 + (neighbor % numColumns - minColumn));
+        }
+        return ((long) minRow * numColumns + minColumn) << 9 | mask;
+    }
+
     private boolean validTileForTileSet(T tile) {
         return !tile.isCleared() && !tile.isFlagged();
     }
 
     /**
      * Create all TileSetRules (linear equations) for the given minesweeper gamestate.
+     * Flagged tiles are taken to be mines, so they are subtracted from the results.
      */
     private void createRules() {
-        TileSetRule<T> globalRule = new TileSetRule<T>(tilingState.getTotalNumberOfMines());
+        int numFlags = 0;
+        for (T tile : tilingState) {
+            if (tile.isFlagged()) {
+                numFlags++;
+            }
+        }
+        globalRule = new TileSetRule<T>(tilingState.getTotalNumberOfMines() - numFlags);
+        Map<T, TileSetRule<T>> rulesByResultTile = new HashMap<>();
         for (TileSet<T> tileSet : tileSets) {
             for (T ruleTile : tileSet.getCommonClearedNeighbors()) {
-                TileSetRule<T> rule = getRuleByResultTile(ruleTile);
+                if (!ruleTile.isCleared()) {
+                    continue; // a flagged neighbor is out of play, but its number is hidden
+                }
+                TileSetRule<T> rule = rulesByResultTile.get(ruleTile);
                 if (rule == null) { // if a rule with that result tile does not exist, we create and add it
-                    rule = new TileSetRule<>(ruleTile);
+                    rule = new TileSetRule<>(ruleTile, ruleTile.getNumberOfNeighboringMines() - tilingState.getNumberOfFlaggedNeighbors(ruleTile));
+                    rulesByResultTile.put(ruleTile, rule);
                     rules.add(rule);
                 }
                 rule.addTileSet(tileSet); // we add the TileSet to the rule.
             }
             globalRule.addTileSet(tileSet);
         }
-        rules.add(globalRule); // globalRule is the sum of all groups.
+        // tiles with the same TileSets around them give the same rule, only keep one
+        rules = new ArrayList<>(new LinkedHashSet<>(rules));
+        // globalRule is the sum of all groups, it is kept apart from rules and applied when combining components.
+    }
+
+    /**
+     * Runs the deduction pass over the rules. If it finds a safe TileSet, the deduced TileSets are given a
+     * probability of 0 or 1 and are the only evaluated TileSets of this solve.
+     * @return the first safe TileSet, or null if none was found.
+     */
+    private TileSet<T> deduceSafeTileSet() {
+        Deduction<T> deduction = new Deduction<>(rules);
+        deduction.deduce();
+        List<TileSet<T>> safeTileSets = deduction.safeTileSets(tileSets);
+        if (safeTileSets.isEmpty()) {
+            return null;
+        }
+        for (TileSet<T> tileSet : safeTileSets) {
+            tileSet.setProbability(0.0);
+            evaluatedTileSets.add(tileSet);
+            deducedSafeTileSets.add(tileSet);
+        }
+        for (TileSet<T> tileSet : deduction.minedTileSets(tileSets)) {
+            tileSet.setProbability(1.0);
+            evaluatedTileSets.add(tileSet);
+            deducedMinedTileSets.add(tileSet);
+        }
+        return safeTileSets.get(0);
     }
 
     /**
-     * Helper method to get the rule corresponding to the given result tile.
-     * @return TileSetRule the tileset rule corresponding to the given result tile
+     * Splits the TileSets and rules into connected components of the constraint graph.
+     * TileSets that are not part of any rule are collected as unconstrained.
      */
-    private TileSetRule<T> getRuleByResultTile(T resultTile) {
+    private void createComponents() {
+        Map<TileSet<T>, List<TileSetRule<T>>> rulesByTileSet = new HashMap<>();
+        for (TileSet<T> tileSet : tileSets) {
+            rulesByTileSet.put(tileSet, new ArrayList<>());
+        }
         for (TileSetRule<T> rule : rules) {
-            if (resultTile.equals(rule.getResultTile())) {
-                return rule;
+            for (TileSet<T> tileSet : rule.getTileSets()) {
+                rulesByTileSet.get(tileSet).add(rule);
             }
         }
-        return null;
+        Set<TileSet<T>> visitedTileSets = new HashSet<>();
+        Set<TileSetRule<T>> visitedRules = new HashSet<>();
+        for (TileSet<T> tileSet : tileSets) {
+            if (rulesByTileSet.get(tileSet).isEmpty()) {
+                unconstrainedTileSets.add(tileSet);
+                continue;
+            }
+            if (visitedTileSets.contains(tileSet)) {
+                continue;
+            }
+            // breadth-first search over TileSets, moving between TileSets through shared rules
+            FrontierComponent<T> component = new FrontierComponent<>();
+            Deque<TileSet<T>> queue = new ArrayDeque<>();
+            queue.add(tileSet);
+            visitedTileSets.add(tileSet);
+            while (!queue.isEmpty()) {
+                TileSet<T> current = queue.poll();
+                component.addTileSet(current);
+                for (TileSetRule<T> rule : rulesByTileSet.get(current)) {
+                    if (visitedRules.add(rule)) {
+                        component.addRule(rule);
+                        for (TileSet<T> neighbor : rule.getTileSets()) {
+                            if (visitedTileSets.add(neighbor)) {
+                                queue.add(neighbor);
+                            }
+                        }
+                    }
+                }
+            }
+            components.add(component);
+        }
     }
 
     /**
-     * Calls recursive helper method.
-     * Populates the solution set with complete result nodes.
+     * Searches the solution tree of each component.
+     * Populates each component's tally with its complete result nodes, within the mine range of assignMineRanges().
+     * Once the budget runs out, the component being counted and every later one are left without a tally, and the
+     * solve is marked approximate. Components counted before keep their exact tallies.
      */
     private void buildSolutionSet() {
-        Map<TileSet<T>, Integer> rootResult = new HashMap<>();
+        Map<Set<TileSet<T>>, FrontierComponent<T>> currentComponents = new HashMap<>();
+        int totalMines = globalRule.getResult();
+        SolutionSearch<T> search = new SolutionSearch<>(totalMines, config.getWeightingMode(), config.isParallel(), config.isKeepSolutions(), config.getVariableOrdering(), budget);
+        ComponentCounter<T> counter = createCounter(totalMines, search);
+        // solutions are not cached, so the cache is skipped when they are kept
+        boolean useCache = cache != null && !config.isKeepSolutions();
+        Map<TileSet<T>, Integer> boardOrder = new HashMap<>();
+        if (useCache) {
+            for (int i = 0; i < tileSets.size(); i++) {
+                boardOrder.put(tileSets.get(i), i);
+            }
+        }
+        assignMineRanges(totalMines);
+        for (FrontierComponent<T> component : components) {
+            Set<TileSet<T>> signature = config.isPersistent() ? component.signature() : null;
+            if (signature != null && solvedComponents.containsKey(signature) && component.canReuseTally(solvedComponents.get(signature))) {
+                component.copyTally(solvedComponents.get(signature));
+                currentComponents.put(signature, component);
+                continue;
+            }
+            List<TileSet<T>> canonicalTileSets = null;
+            ComponentKey key = null;
+            if (useCache) {
+                canonicalTileSets = ComponentKey.canonicalOrder(component, boardOrder);
+                key = ComponentKey.of(canonicalTileSets, component.getRules(), totalMines, component.getMinMines(), component.getMaxMines(), config.getWeightingMode());
+                ComponentCache.Entry entry = cache.get(key);
+                if (entry != null) {
+                    component.copyTally(entry, canonicalTileSets);
+                    if (signature != null) {
+                        currentComponents.put(signature, component);
+                    }
+                    continue;
+                }
+            }
+            boolean counted = !budget.isExhausted() && counter.count(component);
+            // a component the engine cannot count, such as one too wide to sweep, falls back to the search
+            if (!counted && counter != search && !budget.isExhausted()) {
+                counted = search.count(component);
+            }
+            if (!counted) {
+                // a partial tally is biased towards the branches searched first, see calculateAndAssignProbabilities()
+                component.clearTally();
+                approximate = true;
+                continue;
+            }
+            if (useCache) {
+                cache.put(key, component.toCacheEntry(canonicalTileSets));
+            }
+            // only complete tallies are reused
+            if (signature != null) {
+                currentComponents.put(signature, component);
+            }
+        }
+        // only keep the components of this solve, the others can never come back once tiles are cleared
+        solvedComponents = currentComponents;
+    }
+
+    /**
+     * @return the counting engine of the config, or the search if solutions are kept since only it lists them.
+     */
+    private ComponentCounter<T> createCounter(int totalMines, SolutionSearch<T> search) {
+        if (config.isKeepSolutions()) {
+            return search;
+        }
+        switch (config.getCountingEngine()) {
+            case FRONTIER_SWEEP:
+                return new FrontierSweep<>(totalMines, config.getWeightingMode(), budget);
+            case CONFLICT_DRIVEN:
+                return new ConflictDrivenCounter<>(totalMines, config.getWeightingMode(), budget);
+            default:
+                return search;
+        }
+    }
+
+    /**
+     * Gives each component the range of mines its solutions can have and still fit with the rest of the board.
+     * At least the mines that do not fit in the tiles outside of it, and at most the mines left once every other
+     * component has its lower bound, see FrontierComponent.mineLowerBound().
+     */
+    private void assignMineRanges(int totalMines) {
+        int numTiles = 0;
         for (TileSet<T> tileSet : tileSets) {
-            rootResult.put(tileSet, null);
+            numTiles += tileSet.size();
+        }
+        int[] lowerBounds = new int[components.size()];
+        int sumLowerBounds = 0;
+        for (int i = 0; i < components.size(); i++) {
+            lowerBounds[i] = components.get(i).mineLowerBound();
+            sumLowerBounds += lowerBounds[i];
+        }
+        for (int i = 0; i < components.size(); i++) {
+            FrontierComponent<T> component = components.get(i);
+            int componentTiles = component.numTiles();
+            int minMines = Math.max(0, totalMines - (numTiles - componentTiles));
+            int maxMines = Math.min(componentTiles, totalMines - (sumLowerBounds - lowerBounds[i]));
+            component.setMineRange(minMines, maxMines);
         }
-        ResultNode<T> root = new ResultNode<>(rootResult, rules);
-        buildSolutionSet(root);
     }
 
     /**
-     * Recursive helper method to solve possibilities and fill out the solution set.
-     * Pre-order traversal of the solution tree.
+     * Assigns probabilities to all TileSets.
+     * Components are combined by convolving their mine-count distributions, and the global rule is applied by
+     * distributing the remaining mines over the unconstrained tiles.
+     * A component left without a tally because the budget ran out is counted as if its TileSets were unconstrained,
+     * so they get the density of the mines left outside the counted components. The probabilities of an approximate
+     * solve are then kept strictly between 0 and 1, as they are no proof.
      */
-    private void buildSolutionSet(ResultNode<T> current) {
-        // is a leaf if there are no null values in the map
-        if (current.isComplete()) {
-            solutionSet.addResultNode(current);
-            return;
+    void calculateAndAssignProbabilities() {
+        evaluatedTileSets.clear();
+        evaluatedTileSets.addAll(tileSets);
+        List<FrontierComponent<T>> countedComponents = new ArrayList<>();
+        List<TileSet<T>> freeTileSets = new ArrayList<>(unconstrainedTileSets);
+        for (FrontierComponent<T> component : components) {
+            if (component.hasTally()) {
+                countedComponents.add(component);
+            } else {
+                freeTileSets.addAll(component.getTileSets());
+            }
+        }
+        int totalMines = globalRule.getResult();
+        int numFreeTiles = 0;
+        for (TileSet<T> tileSet : freeTileSets) {
+            numFreeTiles += tileSet.size();
+        }
+        if (config.getWeightingMode() == WeightingMode.EXACT) {
+            calculateExactProbabilities(countedComponents, freeTileSets, totalMines, numFreeTiles);
+        } else {
+            calculateLogSpaceProbabilities(countedComponents, freeTileSets, totalMines, numFreeTiles);
         }
-        // find smallest "unknown" node
-        TileSet<T> smallest = current.findSmallestUnknownTileSet();
-        // iterate over the possibilities e.g. a set with 2 tiles could have 0, 1, or 2 mines in it
-        for (int i = 0; i <= Math.min(smallest.size(), tilingState.getTotalNumberOfMines()); i++) {
-            // child is a new node that is a deep copy of current
-            ResultNode<T> child = new ResultNode<>(current);
-            // attempt to solve the rules supposing that alpha for smallest = i
-            child.put(smallest, i);
-            // simplify, and only proceed if simplifications were successful
-            if (child.simplifyAllRules()) {
-                buildSolutionSet(child);
+        if (approximate) {
+            logTotalWeight = Double.NaN;
+            for (TileSet<T> tileSet : tileSets) {
+                tileSet.setProbability(Math.min(Math.max(tileSet.getProbability(), MIN_APPROXIMATE_PROBABILITY), 1 - MIN_APPROXIMATE_PROBABILITY));
             }
         }
     }
 
     /**
-     * Assings probabilities to all TileSets.
+     * Gives every TileSet the density of the game.
      */
-    private void calculateAndAssignProbabilities() {
-        List<BigInteger> numCombinationsPerSolution = solutionSet.numCombinationsPerSolution();
-        BigInteger totalNumCombinations = solutionSet.totalNumCombinations();
+    private void assignDensity() {
         for (TileSet<T> tileSet : tileSets) {
-            BigDecimal probability = BigDecimal.ZERO;
-            // BUG HERE, REMOVE CONDITIONAL CHECK FOR 0. IDEALLY IT DOESN'T NEED IT
-            if (solutionSet.size() == 0) {
-                probability = BigDecimal.valueOf(tilingState.density());
-            } else {
-                for (int i = 0; i < solutionSet.size(); i++) {
-                    int numMines = solutionSet.getNumMinesAtSpecificResultNode(i, tileSet);
-                    BigDecimal decimal = new BigDecimal(numCombinationsPerSolution.get(i));
-                    probability = probability.add(decimal.multiply(BigDecimal.valueOf((double) numMines / tileSet.size())));
+            tileSet.setProbability(tilingState.density());
+        }
+    }
+
+    /**
+     * Probabilities with BigInteger weights, see WeightingMode.EXACT.
+     * @param countedComponents the components with a tally
+     * @param freeTileSets the TileSets whose mines are only limited by the global rule
+     */
+    private void calculateExactProbabilities(List<FrontierComponent<T>> countedComponents, List<TileSet<T>> freeTileSets, int totalMines, int numFreeTiles) {
+        // prefix.get(i) is the distribution of components [0, i), suffix.get(i) is that of components [i, n)
+        int n = countedComponents.size();
+        List<BigInteger[]> prefix = new ArrayList<>();
+        List<BigInteger[]> suffix = new ArrayList<>();
+        prefix.add(new BigInteger[]{BigInteger.ONE});
+        for (int i = 0; i < n; i++) {
+            prefix.add(convolve(prefix.get(i), countedComponents.get(i).getWeights(), totalMines));
+        }
+        for (int i = 0; i <= n; i++) {
+            suffix.add(null);
+        }
+        suffix.set(n, new BigInteger[]{BigInteger.ONE});
+        for (int i = n - 1; i >= 0; i--) {
+            suffix.set(i, convolve(countedComponents.get(i).getWeights(), suffix.get(i + 1), totalMines));
+        }
+
+        // unconstrained[j] is the number of ways to place j mines among the unconstrained tiles, looked up in the loops
+        // below for every pair of mine counts, and the row is usually too large for the memoized triangle
+        BigInteger[] unconstrained = Combinatorics.combinationsRow(numFreeTiles, totalMines);
+
+        // total number of configurations, and the expected number of mines among the unconstrained tiles
+        BigInteger[] all = prefix.get(n);
+        BigInteger totalNumCombinations = BigInteger.ZERO;
+        BigInteger unconstrainedMines = BigInteger.ZERO;
+        for (int m = 0; m < all.length; m++) {
+            BigInteger numCombinations = all[m].multiply(unconstrained[totalMines - m]);
+            totalNumCombinations = totalNumCombinations.add(numCombinations);
+            unconstrainedMines = unconstrainedMines.add(numCombinations.multiply(BigInteger.valueOf(totalMines - m)));
+        }
+
+        logTotalWeight = Combinatorics.log(totalNumCombinations);
+        // 0 only if no configuration fits the game state, such as after a wrong flag, or for an impossible hypothetical
+        // number of LookaheadStrategy. Components without a tally never cause it, their tiles are counted as free.
+        if (totalNumCombinations.signum() == 0) {
+            assignDensity();
+            return;
+        }
+        BigDecimal total = new BigDecimal(totalNumCombinations);
+
+        for (int i = 0; i < n; i++) {
+            FrontierComponent<T> component = countedComponents.get(i);
+            BigInteger[] others = convolve(prefix.get(i), suffix.get(i + 1), totalMines);
+            // outside[m] is the number of configurations of everything outside this component, given m mines inside it
+            BigInteger[] outside = new BigInteger[component.getWeights().length];
+            for (int m = 0; m < outside.length; m++) {
+                outside[m] = BigInteger.ZERO;
+                for (int k = 0; k < others.length && m + k <= totalMines; k++) {
+                    outside[m] = outside[m].add(others[k].multiply(unconstrained[totalMines - m - k]));
                 }
-                probability = probability.divide(new BigDecimal(totalNumCombinations), MathContext.DECIMAL128);
             }
+            for (TileSet<T> tileSet : component.getTileSets()) {
+                BigInteger[] weightedMines = component.getWeightedMines(tileSet);
+                BigInteger sum = BigInteger.ZERO;
+                for (int m = 0; m < outside.length; m++) {
+                    sum = sum.add(weightedMines[m].multiply(outside[m]));
+                }
+                BigDecimal probability = new BigDecimal(sum).divide(total.multiply(BigDecimal.valueOf(tileSet.size())), MathContext.DECIMAL128);
+                tileSet.setProbability(probability.doubleValue());
+            }
+        }
+
+        for (TileSet<T> tileSet : freeTileSets) {
+            BigDecimal probability = new BigDecimal(unconstrainedMines).divide(total.multiply(BigDecimal.valueOf(numFreeTiles)), MathContext.DECIMAL128);
             tileSet.setProbability(probability.doubleValue());
         }
     }
 
+    /**
+     * Probabilities with log-space double weights, see WeightingMode.LOG_SPACE.
+     * Same steps as calculateExactProbabilities(), with products as sums and sums as log-sum-exps.
+     * @param countedComponents the components with a tally
+     * @param freeTileSets the TileSets whose mines are only limited by the global rule
+     */
+    private void calculateLogSpaceProbabilities(List<FrontierComponent<T>> countedComponents, List<TileSet<T>> freeTileSets, int totalMines, int numFreeTiles) {
+        int n = countedComponents.size();
+        List<double[]> prefix = new ArrayList<>();
+        List<double[]> suffix = new ArrayList<>();
+        prefix.add(new double[]{0.0});
+        for (int i = 0; i < n; i++) {
+            prefix.add(logConvolve(prefix.get(i), countedComponents.get(i).getLogWeights(), totalMines));
+        }
+        for (int i = 0; i <= n; i++) {
+            suffix.add(null);
+        }
+        suffix.set(n, new double[]{0.0});
+        for (int i = n - 1; i >= 0; i--) {
+            suffix.set(i, logConvolve(countedComponents.get(i).getLogWeights(), suffix.get(i + 1), totalMines));
+        }
+
+        double[] all = prefix.get(n);
+        double[] logNumCombinations = new double[all.length];
+        double[] logUnconstrainedMines = new double[all.length];
+        for (int m = 0; m < all.length; m++) {
+            logNumCombinations[m] = all[m] + Combinatorics.logCombinations(numFreeTiles, totalMines - m);
+            logUnconstrainedMines[m] = logNumCombinations[m] + Math.log(totalMines - m);
+        }
+        double logTotal = logSumExp(logNumCombinations, logNumCombinations.length);
+        logTotalWeight = logTotal;
+
+        // negative infinity only if no configuration fits the game state, see calculateExactProbabilities()
+        if (logTotal == Double.NEGATIVE_INFINITY) {
+            assignDensity();
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            FrontierComponent<T> component = countedComponents.get(i);
+            double[] others = logConvolve(prefix.get(i), suffix.get(i + 1), totalMines);
+            double[] logOutside = new double[component.getLogWeights().length];
+            double[] terms = new double[others.length];
+            for (int m = 0; m < logOutside.length; m++) {
+                int numTerms = 0;
+                for (int k = 0; k < others.length && m + k <= totalMines; k++) {
+                    terms[numTerms++] = others[k] + Combinatorics.logCombinations(numFreeTiles, totalMines - m - k);
+                }
+                logOutside[m] = logSumExp(terms, numTerms);
+            }
+            double[] products = new double[logOutside.length];
+            for (TileSet<T> tileSet : component.getTileSets()) {
+                double[] logWeightedMines = component.getLogWeightedMines(tileSet);
+                for (int m = 0; m < logOutside.length; m++) {
+                    products[m] = logWeightedMines[m] + logOutside[m];
+                }
+                double logSum = logSumExp(products, products.length);
+                tileSet.setProbability(Math.exp(logSum - logTotal) / tileSet.size());
+            }
+        }
+
+        for (TileSet<T> tileSet : freeTileSets) {
+            double logSum = logSumExp(logUnconstrainedMines, logUnconstrainedMines.length);
+            tileSet.setProbability(Math.exp(logSum - logTotal) / numFreeTiles);
+        }
+    }
+
+    /**
+     * Convolves two log-space mine-count distributions, dropping mine counts above maxMines.
+     * @return the log-space distribution of the sum of mines of both distributions.
+     */
+    private static double[] logConvolve(double[] a, double[] b, int maxMines) {
+        double[] result = new double[Math.min(a.length + b.length - 1, maxMines + 1)];
+        double[] terms = new double[Math.min(a.length, b.length)];
+        for (int m = 0; m < result.length; m++) {
+            int numTerms = 0;
+            for (int i = Math.max(0, m - b.length + 1); i < a.length && i <= m; i++) {
+                terms[numTerms++] = a[i] + b[m - i];
+            }
+            result[m] = logSumExp(terms, numTerms);
+        }
+        return result;
+    }
+
+    /**
+     * @param values natural logarithms of the values to sum
+     * @param length the number of values to sum, starting at index 0
+     * @return the natural logarithm of the sum of the values.
+     */
+    private static double logSumExp(double[] values, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += Math.exp(values[i] - max);
+        }
+        return max + Math.log(sum);
+    }
+
+    /**
+     * Convolves two mine-count distributions, dropping mine counts above maxMines.
+     * @return the distribution of the sum of mines of both distributions.
+     */
+    private static BigInteger[] convolve(BigInteger[] a, BigInteger[] b, int maxMines) {
+        BigInteger[] result = new BigInteger[Math.min(a.length + b.length - 1, maxMines + 1)];
+        for (int m = 0; m < result.length; m++) {
+            result[m] = BigInteger.ZERO;
+        }
+        for (int i = 0; i < a.length && i < result.length; i++) {
+            if (a[i].signum() == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length && i + j < result.length; j++) {
+                result[i + j] = result[i + j].add(a[i].multiply(b[j]));
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns a mapping of each tile in the minesweeper game to the corresponding probability in its encompassing TileSet.
+     * If the last move was found by the deduction pass, only the deduced tiles are mapped.
      * @return the mapping of each tile to its corresponding probability
      */
     public Map<T, Double> getProbabilityMap() {
         Map<T, Double> probabilityMap = new HashMap<T, Double>();
-        for (TileSet<T> tileSet : tileSets) {
+        for (TileSet<T> tileSet : evaluatedTileSets) {
             double probability = tileSet.getProbability();
             for (T tile : tileSet) {
                 probabilityMap.put(tile, probability);
@@ -188,13 +650,69 @@ public class Solver<T extends MinesweeperTileable> {
     /**
      * @return a random tile within the minimum likelihood tile set.
      */
-    private T findRandomMinimumLikelihoodTile(Random random) {
+    T findRandomMinimumLikelihoodTile(Random random) {
         TileSet<T> leastLikelySet = minimumLikelihoodTileSet();
         // picks a random tile from the least likely set
         T randomLeastLikelyTile = leastLikelySet.selectRandomTile(random);
         return randomLeastLikelyTile;
     }
 
+    /**
+     * Performs the steps of the algorithm up to the enumeration: builds the TileSets, rules and components of the
+     * current game state, unless the deduction pass finds a safe TileSet first.
+     * @return the safe TileSet found by the deduction pass, or null if the components were built.
+     */
+    TileSet<T> buildModel() {
+        profile = SolveProfile.ofOneSolve();
+        long time = System.nanoTime();
+        reset();
+        // 1. Group tiles into TileSets.
+        createTileSets();
+        time = profile.lap(SolvePhase.CREATE_TILE_SETS, time);
+        // 2. Create rules based on cleared and non-zero numbered tiles.
+        createRules();
+        time = profile.lap(SolvePhase.CREATE_RULES, time);
+        profile.recordModel(tileSets.size(), rules.size());
+        // 2b. Look for a safe tile without enumerating
+        if (config.isDeduceFirst()) {
+            TileSet<T> safeTileSet = deduceSafeTileSet();
+            time = profile.lap(SolvePhase.DEDUCTION, time);
+            if (safeTileSet != null) {
+                profile.recordDeduced();
+                return safeTileSet;
+            }
+        }
+        // 3. Split into independent components of the constraint graph
+        createComponents();
+        profile.lap(SolvePhase.CREATE_COMPONENTS, time);
+        profile.recordComponents(components.size());
+        return null;
+    }
+
+    /**
+     * Always call after buildModel().
+     * @return the number of mines that are not flagged, the result of the global rule.
+     */
+    int getNumUnflaggedMines() {
+        return globalRule.getResult();
+    }
+
+    /**
+     * Always call after buildModel().
+     * @return the TileSets of the current game state.
+     */
+    List<TileSet<T>> getTileSets() {
+        return tileSets;
+    }
+
+    /**
+     * Always call after buildModel().
+     * @return the components of the current game state, empty if the deduction pass found a safe TileSet.
+     */
+    List<FrontierComponent<T>> getComponents() {
+        return components;
+    }
+
     /**
      * Wrapper method, performs the steps of the algorithm and finds the tile to clear.
      * See README for details.
@@ -202,21 +720,112 @@ public class Solver<T extends MinesweeperTileable> {
      * @return the tile to clear according to this strategy.
      */
     public T tileToClear(Random random) {
-        // 1. Group tiles into TileSets.
-        createTileSets();
-        // 2. Create rules based on cleared and non-zero numbered tiles.
-        createRules();
+        budget = new SearchBudget(config.getTimeLimitMillis(), config.getNodeLimit());
+        // read after the budget is published, so a cancel() racing with this solve stops either this budget or the next
+        if (cancelled) {
+            budget.cancel();
+        }
+        approximate = false;
+        logTotalWeight = Double.NaN;
+        TileSet<T> safeTileSet = buildModel();
+        if (safeTileSet != null) {
+            profile.recordSearch(budget.getNumNodes(), budget.getNumPruned(), budget.getNumSolutions(), approximate);
+            return safeTileSet.selectRandomTile(random);
+        }
 
-        // 3. Create all possible solutions
+        long time = System.nanoTime();
+        // 4. Create all possible solutions per component
         buildSolutionSet();
+        time = profile.lap(SolvePhase.BUILD_SOLUTION_SET, time);
 
-        // 4. Calculate the probabilities of each TileSet
+        // 5. Calculate the probabilities of each TileSet
         calculateAndAssignProbabilities();
-        // 5. Choose the least-likely tile
+        // 6. Choose the least-likely tile
         T tileToClear = findRandomMinimumLikelihoodTile(random);
+        profile.lap(SolvePhase.CALCULATE_PROBABILITIES, time);
+        profile.recordSearch(budget.getNumNodes(), budget.getNumPruned(), budget.getNumSolutions(), approximate);
         return tileToClear;
     }
 
+    /**
+     * Stops the current solve as soon as possible, it then returns its best answer so far.
+     * Later solves are stopped too, until resume() is called. Can be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        budget.cancel();
+    }
+
+    /**
+     * Lets the solves after a cancel() search normally again.
+     */
+    public void resume() {
+        cancelled = false;
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return the number of solution tree nodes (or sweep states) visited by the last solve.
+     */
+    public long getNumNodes() {
+        return budget.getNumNodes();
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return the timings and counts of the last solve.
+     */
+    public SolveProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Always call after tileToClear(). Comparing it across game states that differ in one hypothetical number gives
+     * the relative likelihood of each number.
+     * @return the natural logarithm of the number of mine configurations consistent with the game state, negative
+     *         infinity if there are none, or NaN if the last tile to clear came from the deduction pass or the budget
+     *         ran out before every component was counted.
+     */
+    double getLogTotalWeight() {
+        return logTotalWeight;
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return true if the last solve ran out of budget or was cancelled, so its probabilities are only estimates.
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    /**
+     * Always call after tileToClear(). Unlike probabilities of 0, which may come from rounding, these are certain.
+     * @return every tile the deduction pass proved safe in the last solve, in TileSet order, or an empty list if the
+     *         last tile to clear did not come from the deduction pass.
+     */
+    public List<T> deducedSafeTiles() {
+        return tilesOf(deducedSafeTileSets);
+    }
+
+    /**
+     * Always call after tileToClear().
+     * @return every tile the deduction pass proved to have a mine in the last solve, in TileSet order, or an empty list
+     *         if the last tile to clear did not come from the deduction pass.
+     */
+    public List<T> deducedMines() {
+        return tilesOf(deducedMinedTileSets);
+    }
+
+    private static <T extends MinesweeperTileable> List<T> tilesOf(List<TileSet<T>> tileSets) {
+        List<T> tiles = new ArrayList<>();
+        for (TileSet<T> tileSet : tileSets) {
+            for (T tile : tileSet) {
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
     /**
      * Finds all the tiles with probability 1.0 +/- epsilon (0.0001).
      * @return a list of tiles to flag.
@@ -224,7 +833,7 @@ public class Solver<T extends MinesweeperTileable> {
     public List<T> tilesToFlag() {
         double epsilon = 0.0001;
         List<T> tilesToFlag = new ArrayList<>();
-        for (TileSet<T> tileSet : tileSets) {
+        for (TileSet<T> tileSet : evaluatedTileSets) {
             double probability = tileSet.getProbability();
             if (probability > 1.0 - epsilon && probability < 1.0 + epsilon) {
                 for (T tile : tileSet) {
@@ -0,0 +1,183 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * Options for a Solver.
+ * The defaults solve every move from scratch, sequentially, in log-space, after a deduction pass.
+ */
+public class SolverConfig {
+    private boolean persistent;
+    private WeightingMode weightingMode;
+    private boolean parallel;
+    private boolean keepSolutions;
+    private boolean deduceFirst;
+    private long timeLimitMillis;
+    private long nodeLimit;
+    private int componentCacheCapacity;
+    private CountingEngine countingEngine;
+    private VariableOrdering variableOrdering;
+
+    /**
+     * Initializes a config with the default options.
+     */
+    public SolverConfig() {
+        persistent = false;
+        weightingMode = WeightingMode.LOG_SPACE;
+        parallel = false;
+        keepSolutions = false;
+        deduceFirst = true;
+        timeLimitMillis = 0;
+        nodeLimit = 0;
+        componentCacheCapacity = 0;
+        countingEngine = CountingEngine.BACKTRACKING;
+        variableOrdering = VariableOrdering.MIN_DOMAIN_OVER_DEGREE;
+    }
+
+    /**
+     * @return true if solved components are kept between moves and reused while unchanged.
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * @param persistent true to keep solved components between moves. The Solver must then be reused for every move
+     *                   of the same game.
+     */
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * @return how solutions are weighed when calculating probabilities.
+     */
+    public WeightingMode getWeightingMode() {
+        return weightingMode;
+    }
+
+    /**
+     * @param weightingMode how to weigh solutions when calculating probabilities.
+     */
+    public void setWeightingMode(WeightingMode weightingMode) {
+        this.weightingMode = weightingMode;
+    }
+
+    /**
+     * @return true if large components are enumerated in parallel.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel true to enumerate large components on the common ForkJoinPool. Results are the same as a
+     *                 sequential solve.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return true if every solution is kept in each component's SolutionSet.
+     */
+    public boolean isKeepSolutions() {
+        return keepSolutions;
+    }
+
+    /**
+     * @param keepSolutions true to keep every solution in each component's SolutionSet, for debugging. Otherwise
+     *                      solutions are only tallied, and memory does not grow with the number of solutions.
+     */
+    public void setKeepSolutions(boolean keepSolutions) {
+        this.keepSolutions = keepSolutions;
+    }
+
+    /**
+     * @return true if a deterministic deduction pass runs before the full enumeration.
+     */
+    public boolean isDeduceFirst() {
+        return deduceFirst;
+    }
+
+    /**
+     * @param deduceFirst true to look for safe tiles with a cheap deduction pass first, see Deduction. When one is
+     *                    found the enumeration is skipped, and only the deduced tiles get a probability.
+     */
+    public void setDeduceFirst(boolean deduceFirst) {
+        this.deduceFirst = deduceFirst;
+    }
+
+    /**
+     * @return the time allowed per solve in milliseconds, 0 if there is no limit.
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * @param timeLimitMillis the time allowed per solve in milliseconds, 0 for no limit. A solve that runs out returns
+     *                        its best answer so far and is marked approximate, see Solver.isApproximate().
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return the number of solution tree nodes allowed per solve, 0 if there is no limit.
+     */
+    public long getNodeLimit() {
+        return nodeLimit;
+    }
+
+    /**
+     * @param nodeLimit the number of solution tree nodes allowed per solve, 0 for no limit. Unlike the time limit,
+     *                  gives the same answer on every machine.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * @return the number of solved components a strategy caches across moves and games, 0 if it does not cache.
+     */
+    public int getComponentCacheCapacity() {
+        return componentCacheCapacity;
+    }
+
+    /**
+     * @param componentCacheCapacity the number of solved components a strategy caches across moves and games, see
+     *                               ComponentCache. 0 to not cache.
+     */
+    public void setComponentCacheCapacity(int componentCacheCapacity) {
+        this.componentCacheCapacity = componentCacheCapacity;
+    }
+
+    /**
+     * @return how the solutions of each component are counted.
+     */
+    public CountingEngine getCountingEngine() {
+        return countingEngine;
+    }
+
+    /**
+     * @param countingEngine how to count the solutions of each component. Only BACKTRACKING keeps solutions, so
+     *                       any other engine is ignored when keepSolutions is set.
+     */
+    public void setCountingEngine(CountingEngine countingEngine) {
+        this.countingEngine = countingEngine;
+    }
+
+    /**
+     * @return which unknown TileSet the solution search branches on next.
+     */
+    public VariableOrdering getVariableOrdering() {
+        return variableOrdering;
+    }
+
+    /**
+     * @param variableOrdering which unknown TileSet the solution search branches on next. Only changes the size of the
+     *                         solution tree, not the probabilities.
+     */
+    public void setVariableOrdering(VariableOrdering variableOrdering) {
+        this.variableOrdering = variableOrdering;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Random;
 import java.util.Set;
 
 import src.main.java.minesweeper.logic.MinesweeperTileable;
+import src.main.java.minesweeper.logic.Neighborhood;
 import src.main.java.minesweeper.logic.TilingState;
 
 
@@ -45,22 +46,32 @@ public class TileSet<T extends MinesweeperTileable> implements Iterable<T>{
         return false;
     }
 
+    /**
+     * Add a tile that is already known to share the common cleared neighbors of this TileSet, without checking.
+     * @param tile the tile to add
+     */
+    public void addWithSameSignature(T tile) {
+        set.add(tile);
+    }
+
     /**
      * Check if a tile shares common cleared neighbors to that of this TileSet.
      * @param other the tile to check
      * @return true if the tile has common cleared neighbors, false otherwise.
      */
     private boolean equalClearedNeighbors(T other) {
-        Set<T> otherClearedNeighbors = tilingState.getOutOfPlayNeighbors(other);
-        if (commonClearedNeighbors.size() != otherClearedNeighbors.size()) {
-            return false;
-        }
-        for (T tile : otherClearedNeighbors) {
-            if (!commonClearedNeighborsContains(tile)) {
-                return false;
+        int[] neighbors = new int[Neighborhood.MAX_NEIGHBORS];
+        int numNeighbors = tilingState.getNeighborIndices(other, neighbors);
+        int numOutOfPlay = 0;
+        for (int k = 0; k < numNeighbors; k++) {
+            if (tilingState.isOutOfPlay(neighbors[k])) {
+                if (!commonClearedNeighborsContains(tilingState.get(neighbors[k]))) {
+                    return false;
+                }
+                numOutOfPlay++;
             }
         }
-        return true;
+        return numOutOfPlay == commonClearedNeighbors.size();
     }
 
     /**
@@ -1,6 +1,5 @@
 package src.main.java.minesweeper.bot.strategy.probabilistic;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import src.main.java.minesweeper.logic.MinesweeperTileable;
@@ -16,11 +15,11 @@ public class TileSetRule<T extends MinesweeperTileable> {
     private T resultTile;
 
     /**
-     * 2-arg constructor, used to initialize all fields. Only private
+     * 2-arg constructor, used to initialize all fields.
      * @param resultTile the result tile to build this rule around. This can be null.
-     * @param result the result to use.
+     * @param result the result to use, e.g. the number of neighboring mines not yet flagged.
      */
-    private TileSetRule(T resultTile, int result) {
+    public TileSetRule(T resultTile, int result) {
         tileSets = new ArrayList<>();
         this.resultTile = resultTile;
         this.result = result;
@@ -89,6 +88,13 @@ public class TileSetRule<T extends MinesweeperTileable> {
         tileSets.add(tileSet);
     }
 
+    /**
+     * @return the TileSets (variables) of this rule.
+     */
+    public List<TileSet<T>> getTileSets() {
+        return tileSets;
+    }
+
     /**
      * @return the result of this tileset i.e. the beta.
      */
@@ -103,66 +109,6 @@ public class TileSetRule<T extends MinesweeperTileable> {
         return resultTile;
     }
 
-    /**
-     * Simplifies a single rule based on a resultNode (current state). See README for details on simplification.
-     * @param resultNode the result node to update based on the simplification.
-     * @return the result of the simplification
-     */
-    public SimplifyResult simplify(ResultNode<T> resultNode) {
-        if (numTileSets() == 0 && result == 0) {
-            return SimplifyResult.NO_EFFECT;
-        }
-
-        Iterator<TileSet<T>> iterator = tileSets.iterator();
-        // We only keep TileSets that have unknown values
-        while (iterator.hasNext()) {
-            TileSet<T> tileSet = iterator.next();
-            Integer numMines = resultNode.get(tileSet);
-            if (numMines != null) {
-                result -= numMines; // remove known TileSets from this rule
-                iterator.remove();
-            }
-        }
-
-        // invalid simplifications
-        if (result < 0) {
-            return SimplifyResult.NEGATIVE;
-        }
-        if (result > numTiles()) {
-            return SimplifyResult.TOO_BIG;
-        }
-
-        // three simplification scenarios:
-        // 1. something like [A] = X, clearly, TileSet [A] must have a value of X
-        if (numTileSets() == 1) {
-            resultNode.put(tileSets.get(0), result);
-            tileSets.clear();
-            result = 0;
-            return SimplifyResult.SIMPLIFIED;
-        }
-
-        // 2. something like [A] + [B] = 0. Clearly, both [A] and [B] must be 0
-        if (result == 0) {
-            for (TileSet<T> tileSet : tileSets) {
-                resultNode.put(tileSet, 0);
-            }
-            tileSets.clear();
-            result = 0;
-            return SimplifyResult.SIMPLIFIED;
-        }
-
-        // 3. Something like [a + b + c] + [c + d] = 5. Clearly, everything must be 5.
-        if (numTiles() == result) {
-            for (TileSet<T> tileSet : tileSets) {
-                resultNode.put(tileSet, tileSet.size() * result / numTileSets());
-            }
-            tileSets.clear();
-            result = 0;
-            return SimplifyResult.SIMPLIFIED;
-        }
-        return SimplifyResult.NO_EFFECT;
-    }
-
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,17 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * Which unknown TileSet the solution search branches on next. Every policy visits the same solutions, only the size of
+ * the tree changes. Ties are broken by the order of the TileSets in the component.
+ * The degree of a TileSet is the number of rules containing it. Propagation assigns the last unknown TileSet of a rule
+ * at once, so every rule around an unknown TileSet still has another unknown one, and the degree never changes during
+ * the search.
+ */
+public enum VariableOrdering {
+    /** The TileSet with the fewest tiles, so the fewest alphas to try. */
+    SMALLEST_DOMAIN,
+    /** The TileSet in the most rules, so each branch propagates as far as possible. Ties go to the smallest. */
+    MOST_CONSTRAINED,
+    /** The TileSet with the lowest ratio of its number of alphas to its degree. */
+    MIN_DOMAIN_OVER_DEGREE;
+}
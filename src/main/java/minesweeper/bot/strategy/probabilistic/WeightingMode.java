@@ -0,0 +1,12 @@
+package src.main.java.minesweeper.bot.strategy.probabilistic;
+
+/**
+ * How the Solver weighs solutions when calculating probabilities.
+ * Each solution is weighted by its number of mine configurations, which grows quickly with board size.
+ */
+public enum WeightingMode {
+    /** Weights are kept as logarithms in doubles, using a table of log-factorials. Fast, but not exact. */
+    LOG_SPACE,
+    /** Weights are kept exactly as BigIntegers, and probabilities are divided with BigDecimals. Use for verification. */
+    EXACT;
+}
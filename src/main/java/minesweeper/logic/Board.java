@@ -0,0 +1,167 @@
+package src.main.java.minesweeper.logic;
+
+/**
+ * Compact representation of a minefield, with flat primitive arrays in row-major order.
+ * Each cell is a byte holding its number of neighboring mines and its cleared and flagged bits, and the mines are one
+ * bit per cell. Cells are addressed by their index, row * columns + column.
+ * Tile objects are only views of a cell, see Tile.
+ */
+public class Board {
+
+    /** Bits of a cell holding its number of neighboring mines, at most 8 */
+    private static final int NUMBER_MASK = 0x0F;
+    private static final int CLEARED = 0x10;
+    private static final int FLAGGED = 0x20;
+
+    private int rows;
+    private int columns;
+    private double initialDensity;
+    private byte[] cells;
+    private long[] mines;
+
+    /**
+     * Initializes a board with no mines, and every cell uncleared and unflagged.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param initialDensity the probability that a cell has a mine before the game starts
+     */
+    public Board(int rows, int columns, double initialDensity) {
+        this.rows = rows;
+        this.columns = columns;
+        this.initialDensity = initialDensity;
+        this.cells = new byte[rows * columns];
+        this.mines = new long[(rows * columns + 63) >> 6];
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param column the column of the cell
+     * @return the index of the cell.
+     */
+    public int index(int row, int column) {
+        return row * columns + column;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return the row of the cell.
+     */
+    public int rowOf(int index) {
+        return index / columns;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return the column of the cell.
+     */
+    public int columnOf(int index) {
+        return index % columns;
+    }
+
+    /**
+     * @return true if (row, column) is a cell of this board.
+     */
+    public boolean isInBounds(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * @return the number of cells.
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    public int getNumRows() {
+        return rows;
+    }
+
+    public int getNumColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the probability that a cell has a mine before the game starts.
+     */
+    public double getInitialDensity() {
+        return initialDensity;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return the number of mines around the cell.
+     */
+    public int getNumberOfNeighboringMines(int index) {
+        return cells[index] & NUMBER_MASK;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return true if the cell is cleared.
+     */
+    public boolean isCleared(int index) {
+        return (cells[index] & CLEARED) != 0;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return true if the cell is flagged.
+     */
+    public boolean isFlagged(int index) {
+        return (cells[index] & FLAGGED) != 0;
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return true if the cell has a mine.
+     */
+    public boolean hasMine(int index) {
+        return (mines[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Clears a cell.
+     * @param index the index of the cell
+     */
+    public void setCleared(int index) {
+        cells[index] |= CLEARED;
+    }
+
+    /**
+     * Flags or unflags a cell.
+     * @param index the index of the cell
+     * @param flag true to flag the cell, false to unflag it
+     */
+    public void setFlag(int index, boolean flag) {
+        if (flag) {
+            cells[index] |= FLAGGED;
+        } else {
+            cells[index] &= ~FLAGGED;
+        }
+    }
+
+    /**
+     * Adds one to the number of neighboring mines of a cell.
+     * @param index the index of the cell
+     */
+    public void incrementNumberOfNeighboringMines(int index) {
+        cells[index]++;
+    }
+
+    /**
+     * Places a mine in a cell, and increments the number of every cell around it.
+     * @param index the index of the cell
+     */
+    public void placeMine(int index) {
+        mines[index >> 6] |= 1L << index;
+        int row = rowOf(index);
+        int column = columnOf(index);
+        for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+            for (int j = Math.max(0, column - 1); j <= Math.min(columns - 1, column + 1); j++) {
+                if (i != row || j != column) {
+                    cells[i * columns + j]++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package src.main.java.minesweeper.logic;
+
+import java.util.SplittableRandom;
+
+/**
+ * A square block of the cells of a ChunkedMinesweeper game, in the layout of Board: one byte of state per cell in
+ * row-major order, and one bit per cell for the mines.
+ * The mines of a chunk only depend on the seed of the game, the position of the chunk and the starting cell, so an
+ * untouched chunk can be dropped and generated again identically.
+ */
+class Chunk {
+
+    static final int BITS = 5;
+    /** The number of rows and columns of a chunk */
+    static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+
+    private static final int NUMBER_MASK = 0x0F;
+    private static final int CLEARED = 0x10;
+    private static final int FLAGGED = 0x20;
+
+    private long key;
+    private byte[] cells;
+    private long[] mines;
+    private int numSafe;
+    private int numCleared;
+    private int numFlagged;
+    private boolean restored; // every cell without a mine is cleared, but the numbers are computed on demand
+
+    /**
+     * Generates the mines of a chunk, each cell having a mine with the given density.
+     * Cells out of bounds and cells around the starting cell never have a mine.
+     * @param key the key of the chunk, see keyOf()
+     * @param seed the seed of the game
+     * @param density the probability that a cell has a mine
+     * @param game the game, for its bounds and starting cell
+     */
+    Chunk(long key, long seed, double density, ChunkedMinesweeper game) {
+        this.key = key;
+        this.cells = new byte[SIZE * SIZE];
+        this.mines = new long[SIZE * SIZE / 64];
+        SplittableRandom random = new SplittableRandom(seed ^ key * 0x9E3779B97F4A7C15L);
+        int originRow = originRow(key);
+        int originColumn = originColumn(key);
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            // one draw per cell whether it can have a mine or not, so the bounds do not shift the other cells
+            boolean mine = random.nextDouble() < density;
+            int row = originRow + (cell >> BITS);
+            int column = originColumn + (cell & MASK);
+            if (!game.isInBounds(row, column)) {
+                continue;
+            }
+            if (mine && !game.isAroundStart(row, column)) {
+                mines[cell >> 6] |= 1L << cell;
+            } else {
+                numSafe++;
+            }
+        }
+    }
+
+    /**
+     * @return the key of the chunk holding a cell, its chunk row in the high half and its chunk column in the low half.
+     */
+    static long keyOf(int row, int column) {
+        return (long) (row >> BITS) << 32 | (column >> BITS) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the key of the chunk at a position of the grid of chunks.
+     */
+    static long keyOfChunk(int chunkRow, int chunkColumn) {
+        return (long) chunkRow << 32 | chunkColumn & 0xFFFFFFFFL;
+    }
+
+    static int chunkRowOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int chunkColumnOf(long key) {
+        return (int) key;
+    }
+
+    static int originRow(long key) {
+        return chunkRowOf(key) << BITS;
+    }
+
+    static int originColumn(long key) {
+        return chunkColumnOf(key) << BITS;
+    }
+
+    /**
+     * @return the index of a cell within its chunk.
+     */
+    static int cellOf(int row, int column) {
+        return (row & MASK) << BITS | column & MASK;
+    }
+
+    long getKey() {
+        return key;
+    }
+
+    boolean hasMine(int cell) {
+        return (mines[cell >> 6] & (1L << cell)) != 0;
+    }
+
+    boolean isCleared(int cell) {
+        return (cells[cell] & CLEARED) != 0 || restored && !hasMine(cell);
+    }
+
+    /**
+     * @return true if the number of a cleared cell is stored, false if it must be computed, see setNumber().
+     */
+    boolean hasNumber(int cell) {
+        return (cells[cell] & CLEARED) != 0;
+    }
+
+    boolean isFlagged(int cell) {
+        return (cells[cell] & FLAGGED) != 0;
+    }
+
+    /**
+     * @return the number of neighboring mines of a cleared cell, 0 for an uncleared cell.
+     */
+    int getNumberOfNeighboringMines(int cell) {
+        return cells[cell] & NUMBER_MASK;
+    }
+
+    /**
+     * Clears a cell.
+     * @param cell the index of the cell within the chunk
+     * @param numberOfNeighboringMines the number of mines around the cell
+     */
+    void setCleared(int cell, int numberOfNeighboringMines) {
+        cells[cell] = (byte) (CLEARED | numberOfNeighboringMines);
+        numCleared++;
+    }
+
+    /**
+     * Stores the number of a cell of a restored chunk, which is already cleared.
+     */
+    void setNumber(int cell, int numberOfNeighboringMines) {
+        cells[cell] = (byte) (CLEARED | numberOfNeighboringMines);
+    }
+
+    /**
+     * Clears every cell without a mine of a resolved chunk that was dropped and generated again. Flags are not
+     * restored, and the numbers are only computed when asked for, so restoring does not load the chunks around.
+     */
+    void restoreResolved() {
+        restored = true;
+        numCleared = numSafe;
+    }
+
+    void setFlag(int cell, boolean flag) {
+        if (flag && !isFlagged(cell)) {
+            cells[cell] |= FLAGGED;
+            numFlagged++;
+        } else if (!flag && isFlagged(cell)) {
+            cells[cell] &= ~FLAGGED;
+            numFlagged--;
+        }
+    }
+
+    boolean hasClearedTiles() {
+        return numCleared > 0;
+    }
+
+    /**
+     * @return true if no cell was cleared or flagged, so the chunk can be generated again identically.
+     */
+    boolean isUntouched() {
+        return numCleared == 0 && numFlagged == 0;
+    }
+
+    /**
+     * @return true if every cell without a mine is cleared.
+     */
+    boolean isResolved() {
+        return numCleared == numSafe;
+    }
+}
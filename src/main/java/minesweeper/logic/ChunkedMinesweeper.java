@@ -0,0 +1,613 @@
+package src.main.java.minesweeper.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minesweeper game on an enormous or unbounded board, split into square chunks that are generated when first touched.
+ * The mines of a chunk are drawn from the seed of the game and the position of the chunk, each cell having a mine with
+ * the density of the game, and the starting tile and its neighbors never have a mine, so the start is a 0.
+ * Chunks that can be generated again without losing anything are dropped once more than a given number are loaded:
+ * untouched chunks, and resolved chunks (every tile without a mine cleared) surrounded by resolved chunks. So memory
+ * follows the unresolved part of the game, plus one key per resolved chunk, instead of the size of the board.
+ * A bot plays through getFrontierRegions(), one small TilingState around each unresolved chunk with an uncleared tile
+ * next to a cleared tile, so the solver never sees the resolved or untouched parts of the board. The chunks of the
+ * frontier are never dropped, so memory and the work of each move grow with the length of the frontier.
+ * Logic only, no UI elements.
+ */
+public class ChunkedMinesweeper {
+
+    /** The default number of loaded chunks above which chunks are dropped */
+    public static final int DEFAULT_MAX_LOADED_CHUNKS = 256;
+
+    /**
+     * The lowest density of an unbounded board. Below about 0.1 the 0s of the board connect into an infinite region,
+     * so a clear never ends: from a density of 0.11, a clear in the middle of a bounded board of 4096x4096 tiles opens
+     * less than 1% of it, but at 0.09 it opens half of it.
+     */
+    public static final double MIN_UNBOUNDED_DENSITY = 0.12;
+
+    /** The number of tiles a frontier region shows around its chunk, at most the size of a chunk */
+    public static final int FRONTIER_MARGIN = 4;
+
+    // what a player knows of a tile, read from the loaded chunks only, see knownStateOf()
+    private static final int UNKNOWN = 0;
+    private static final int NUMBERED = 1; // cleared, with its number stored
+    private static final int SAFE = 2; // cleared, but its number is only computed on demand, see Chunk.restoreResolved()
+    private static final int MINE = 3; // flagged, or uncleared in a resolved chunk
+    private static final int UNREAD = 4; // in a dropped resolved chunk, which is not generated again to be read
+
+    private boolean bounded;
+    private int rows;
+    private int columns;
+    private double density;
+    private long seed;
+    private int maxLoadedChunks;
+    private int evictionThreshold; // the number of loaded chunks above which the next eviction runs
+
+    private Map<Long, Chunk> chunks;
+    private Chunk lastChunk; // the chunk of the last access, as accesses are mostly local
+    private Set<Long> resolvedChunks;
+
+    private boolean started;
+    private int startingRow;
+    private int startingColumn;
+    private boolean playing;
+    private boolean won;
+    private long numTilesCleared;
+    private int numMoves;
+
+    /** Packed positions of the cleared 0s of the flood fill, a ring buffer that grows as needed */
+    private long[] queue;
+
+    /**
+     * Constructor for a game on an unbounded board.
+     * @param density the probability that a tile has a mine, at least MIN_UNBOUNDED_DENSITY so a clear always ends
+     * @param seed the seed from which the mines are generated
+     */
+    public ChunkedMinesweeper(double density, long seed) {
+        this(density, seed, DEFAULT_MAX_LOADED_CHUNKS);
+    }
+
+    /**
+     * Constructor for a game on an unbounded board.
+     * @param density the probability that a tile has a mine, at least MIN_UNBOUNDED_DENSITY so a clear always ends
+     * @param seed the seed from which the mines are generated
+     * @param maxLoadedChunks the number of loaded chunks above which chunks are dropped
+     */
+    public ChunkedMinesweeper(double density, long seed, int maxLoadedChunks) {
+        this(0, 0, density, seed, maxLoadedChunks);
+        if (density < MIN_UNBOUNDED_DENSITY) {
+            throw new IllegalArgumentException("An unbounded board needs a density of at least " + MIN_UNBOUNDED_DENSITY + " for its clears to end");
+        }
+        this.bounded = false;
+    }
+
+    /**
+     * Constructor for a game on a bounded board, which is won when every tile without a mine is cleared.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param density the probability that a tile has a mine
+     * @param seed the seed from which the mines are generated
+     */
+    public ChunkedMinesweeper(int rows, int columns, double density, long seed) {
+        this(rows, columns, density, seed, DEFAULT_MAX_LOADED_CHUNKS);
+    }
+
+    /**
+     * Constructor for a game on a bounded board, which is won when every tile without a mine is cleared.
+     * @param rows the number of rows
+     * @param columns the number of columns
+     * @param density the probability that a tile has a mine
+     * @param seed the seed from which the mines are generated
+     * @param maxLoadedChunks the number of loaded chunks above which chunks are dropped
+     */
+    public ChunkedMinesweeper(int rows, int columns, double density, long seed, int maxLoadedChunks) {
+        this.bounded = true;
+        this.rows = rows;
+        this.columns = columns;
+        this.density = density;
+        this.seed = seed;
+        this.maxLoadedChunks = maxLoadedChunks;
+        this.evictionThreshold = maxLoadedChunks;
+        this.chunks = new HashMap<>();
+        this.resolvedChunks = new HashSet<>();
+        this.queue = new long[64];
+        this.playing = true;
+    }
+
+    /**
+     * @return true if (row, column) is a tile of the board, always true on an unbounded board.
+     */
+    public boolean isInBounds(int row, int column) {
+        return !bounded || row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * @return true if (row, column) is the starting tile or one of its neighbors.
+     */
+    boolean isAroundStart(int row, int column) {
+        return Math.abs(row - startingRow) <= 1 && Math.abs(column - startingColumn) <= 1;
+    }
+
+    /**
+     * Returns the chunk holding a tile, generating it if it is not loaded.
+     * Must only be called once the game has started, as the mines depend on the starting tile.
+     */
+    private Chunk chunkAt(int row, int column) {
+        long key = Chunk.keyOf(row, column);
+        if (lastChunk != null && lastChunk.getKey() == key) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(key, seed, density, this);
+            if (resolvedChunks.contains(key)) {
+                chunk.restoreResolved();
+            } else if (chunk.isResolved()) {
+                resolvedChunks.add(key); // no tile without a mine
+            }
+            chunks.put(key, chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Clears a tile, and the tiles around every cleared 0, using BFS.
+     * The first clear starts the game, and no chunk is generated before it. Chunks are dropped during the fill, so a
+     * large opening only keeps the chunks along its border loaded.
+     * @param row the row of the tile to clear
+     * @param column the column of the tile to clear
+     */
+    public void clear(int row, int column) {
+        if (!playing || !isInBounds(row, column)) {
+            return;
+        }
+        if (!started) {
+            started = true;
+            startingRow = row;
+            startingColumn = column;
+        }
+        Chunk chunk = chunkAt(row, column);
+        int cell = Chunk.cellOf(row, column);
+        if (chunk.isCleared(cell) || chunk.isFlagged(cell)) {
+            return;
+        }
+        numMoves++;
+        if (chunk.hasMine(cell)) {
+            playing = false;
+            return;
+        }
+        int head = 0;
+        int size = 0;
+        if (reveal(chunk, cell, row, column)) {
+            queue[size++] = pack(row, column);
+        }
+        while (size > 0) {
+            evictIfNeeded();
+            long position = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            int zeroRow = (int) (position >> 32);
+            int zeroColumn = (int) position;
+            for (int i = zeroRow - 1; i <= zeroRow + 1; i++) {
+                for (int j = zeroColumn - 1; j <= zeroColumn + 1; j++) {
+                    if (!isInBounds(i, j)) {
+                        continue;
+                    }
+                    Chunk neighborChunk = chunkAt(i, j);
+                    int neighbor = Chunk.cellOf(i, j);
+                    // a tile around a zero is never a mine
+                    if (!neighborChunk.isCleared(neighbor) && !neighborChunk.isFlagged(neighbor)
+                            && reveal(neighborChunk, neighbor, i, j)) {
+                        if (size == queue.length) {
+                            queue = grow(queue, head);
+                            head = 0;
+                        }
+                        queue[(head + size++) % queue.length] = pack(i, j);
+                    }
+                }
+            }
+        }
+        if (bounded && resolvedChunks.size() == numberOfChunks()) {
+            won = true;
+            playing = false;
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Clears one tile.
+     * @return true if the tile is a 0, so the tiles around it must be cleared too.
+     */
+    private boolean reveal(Chunk chunk, int cell, int row, int column) {
+        int number = countNeighboringMines(row, column);
+        chunk.setCleared(cell, number);
+        numTilesCleared++;
+        if (chunk.isResolved()) {
+            resolvedChunks.add(chunk.getKey());
+        }
+        return number == 0;
+    }
+
+    private int countNeighboringMines(int row, int column) {
+        int count = 0;
+        for (int i = row - 1; i <= row + 1; i++) {
+            for (int j = column - 1; j <= column + 1; j++) {
+                if ((i != row || j != column) && isInBounds(i, j) && chunkAt(i, j).hasMine(Chunk.cellOf(i, j))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long pack(int row, int column) {
+        return (long) row << 32 | column & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return a ring buffer twice as long, holding the elements of a full one from its start.
+     */
+    private static long[] grow(long[] queue, int head) {
+        long[] grown = new long[queue.length * 2];
+        System.arraycopy(queue, head, grown, 0, queue.length - head);
+        System.arraycopy(queue, 0, grown, queue.length - head, head);
+        return grown;
+    }
+
+    /**
+     * Flags or unflags an uncleared tile. There is no limit on the number of flags.
+     * @param row the row of the tile to flag
+     * @param column the column of the tile to flag
+     */
+    public void flag(int row, int column) {
+        if (!playing || !started || !isInBounds(row, column)) {
+            return;
+        }
+        Chunk chunk = chunkAt(row, column);
+        int cell = Chunk.cellOf(row, column);
+        if (!chunk.isCleared(cell)) {
+            chunk.setFlag(cell, !chunk.isFlagged(cell));
+            numMoves++;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Clears a tile of a frontier region.
+     * @param region a region of getFrontierRegions()
+     * @param tile a tile of the TilingState of the region
+     */
+    public void clear(FrontierRegion region, Tile tile) {
+        clear(region.rowOf(tile), region.columnOf(tile));
+    }
+
+    /**
+     * Flags or unflags a tile of a frontier region.
+     * @param region a region of getFrontierRegions()
+     * @param tile a tile of the TilingState of the region
+     */
+    public void flag(FrontierRegion region, Tile tile) {
+        flag(region.rowOf(tile), region.columnOf(tile));
+    }
+
+    /**
+     * Drops the chunks that can be generated again identically: untouched chunks, and resolved chunks whose
+     * neighboring chunks are all resolved, so no tile of the frontier needs their numbers.
+     */
+    public void evict() {
+        Iterator<Chunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            if (chunk.isUntouched() || chunk.isResolved() && isSurroundedByResolvedChunks(chunk.getKey())) {
+                iterator.remove();
+            }
+        }
+        lastChunk = null;
+    }
+
+    /**
+     * Evicts once more than the maximum number of chunks are loaded. When more chunks than that must stay loaded, the
+     * next eviction waits until their number doubles, so scanning the chunks does not follow every move.
+     */
+    private void evictIfNeeded() {
+        if (chunks.size() > evictionThreshold) {
+            evict();
+            evictionThreshold = Math.max(maxLoadedChunks, 2 * chunks.size());
+        }
+    }
+
+    private boolean isSurroundedByResolvedChunks(long key) {
+        int chunkRow = Chunk.chunkRowOf(key);
+        int chunkColumn = Chunk.chunkColumnOf(key);
+        for (int i = chunkRow - 1; i <= chunkRow + 1; i++) {
+            for (int j = chunkColumn - 1; j <= chunkColumn + 1; j++) {
+                boolean inBounds = isInBounds(i << Chunk.BITS, j << Chunk.BITS);
+                if (inBounds && !resolvedChunks.contains(Chunk.keyOfChunk(i, j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of chunks of a bounded board.
+     */
+    private long numberOfChunks() {
+        long chunkRows = (rows + Chunk.SIZE - 1) / Chunk.SIZE;
+        long chunkColumns = (columns + Chunk.SIZE - 1) / Chunk.SIZE;
+        return chunkRows * chunkColumns;
+    }
+
+    /**
+     * Returns what a player sees of the unresolved part of the game, one region per chunk of the frontier. A chunk is
+     * in the frontier if it is not resolved and one of its uncleared tiles is next to a cleared tile. Its region is a
+     * TilingState over the chunk and FRONTIER_MARGIN tiles around it, so each state stays small however much of the
+     * board was explored. Before the first clear, the only region is the one of the chunk at (0, 0), and if no tile
+     * left is next to a cleared tile, as when they are walled in by mines, the regions are those of every unresolved
+     * chunk next to a chunk with cleared tiles.
+     * The tiles are read from the loaded chunks only, so no chunk is loaded or generated again: a chunk that is not
+     * loaded is either untouched, and its tiles are unknown, or resolved and dropped, and its tiles are hidden.
+     * The uncleared tiles of resolved chunks are known to be mines, so they are shown flagged. A cleared tile on the
+     * edge of a state only counts the mines inside it, and is hidden unless its neighbors outside are all cleared or
+     * known mines, so every rule the solver builds is implied by the game. A region does not see the rules beyond its
+     * margin, but each uncleared tile of the frontier is in the chunk of one region, which sees every rule around it.
+     * The number of mines of a region is unknown, so it is the number of flags in it plus the expected number of
+     * mines of its other uncleared tiles.
+     * @return the frontier regions, copied again on each call.
+     */
+    public List<FrontierRegion> getFrontierRegions() {
+        List<FrontierRegion> regions = new ArrayList<>();
+        if (!started) {
+            regions.add(frontierRegion(Chunk.keyOfChunk(0, 0), false));
+            return regions;
+        }
+        // every uncleared tile next to a cleared tile is in or next to a chunk with cleared tiles
+        Set<Long> candidates = new HashSet<>();
+        for (Chunk chunk : chunks.values()) {
+            if (!chunk.hasClearedTiles()) {
+                continue;
+            }
+            int chunkRow = Chunk.chunkRowOf(chunk.getKey());
+            int chunkColumn = Chunk.chunkColumnOf(chunk.getKey());
+            for (int i = chunkRow - 1; i <= chunkRow + 1; i++) {
+                for (int j = chunkColumn - 1; j <= chunkColumn + 1; j++) {
+                    long key = Chunk.keyOfChunk(i, j);
+                    if (isInBounds(i << Chunk.BITS, j << Chunk.BITS) && !resolvedChunks.contains(key)) {
+                        candidates.add(key);
+                    }
+                }
+            }
+        }
+        for (long key : candidates) {
+            FrontierRegion region = frontierRegion(key, true);
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        if (regions.isEmpty()) {
+            for (long key : candidates) {
+                regions.add(frontierRegion(key, false));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Builds the region of a chunk, see getFrontierRegions().
+     * @param frontierOnly true if the chunk must have an uncleared tile next to a cleared tile
+     * @return the region, or null if the chunk must be in the frontier and is not.
+     */
+    private FrontierRegion frontierRegion(long key, boolean frontierOnly) {
+        int firstRow = Chunk.originRow(key) - FRONTIER_MARGIN;
+        int firstColumn = Chunk.originColumn(key) - FRONTIER_MARGIN;
+        int lastRow = Chunk.originRow(key) + Chunk.SIZE - 1 + FRONTIER_MARGIN;
+        int lastColumn = Chunk.originColumn(key) + Chunk.SIZE - 1 + FRONTIER_MARGIN;
+        if (bounded) {
+            firstRow = Math.max(0, firstRow);
+            firstColumn = Math.max(0, firstColumn);
+            lastRow = Math.min(rows - 1, lastRow);
+            lastColumn = Math.min(columns - 1, lastColumn);
+        }
+        int numRows = lastRow - firstRow + 1;
+        int numColumns = lastColumn - firstColumn + 1;
+
+        Board board = new Board(numRows, numColumns, density);
+        boolean[] hidden = new boolean[numRows * numColumns];
+        int numFlags = 0;
+        int numUnknown = 0;
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numColumns; j++) {
+                int row = firstRow + i;
+                int column = firstColumn + j;
+                int index = board.index(i, j);
+                int state = knownStateOf(row, column);
+                if (state == NUMBERED) {
+                    boolean edge = i == 0 || j == 0 || i == numRows - 1 || j == numColumns - 1;
+                    int minesOutside = edge ? knownMinesOutside(row, column, firstRow, lastRow, firstColumn, lastColumn) : 0;
+                    if (minesOutside >= 0) {
+                        board.setCleared(index);
+                        int number = chunks.get(Chunk.keyOf(row, column)).getNumberOfNeighboringMines(Chunk.cellOf(row, column));
+                        for (int n = minesOutside; n < number; n++) {
+                            board.incrementNumberOfNeighboringMines(index);
+                        }
+                        continue;
+                    }
+                } else if (state == MINE) {
+                    board.setFlag(index, true);
+                    numFlags++;
+                    continue;
+                }
+                hidden[index] = state != UNKNOWN;
+                numUnknown++;
+            }
+        }
+        if (frontierOnly && !hasFrontier(board, hidden, Chunk.originRow(key) - firstRow, Chunk.originColumn(key) - firstColumn)) {
+            return null;
+        }
+        int numMines = numFlags + (int) Math.round(density * numUnknown);
+        TilingState<Tile> tilingState = new TilingState<>(numRows, numColumns, numMines);
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numColumns; j++) {
+                tilingState.add(i, j, new Tile(board, i, j));
+            }
+        }
+        tilingState.updateDensity(density);
+        return new FrontierRegion(tilingState, key, firstRow, firstColumn, hidden);
+    }
+
+    /**
+     * Reads what a player knows of a tile from the loaded chunks, without loading its chunk.
+     * @return UNKNOWN, NUMBERED, SAFE, MINE or UNREAD.
+     */
+    private int knownStateOf(int row, int column) {
+        long key = Chunk.keyOf(row, column);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            return resolvedChunks.contains(key) ? UNREAD : UNKNOWN;
+        }
+        int cell = Chunk.cellOf(row, column);
+        if (chunk.isCleared(cell)) {
+            return chunk.hasNumber(cell) ? NUMBERED : SAFE;
+        }
+        return chunk.isFlagged(cell) || chunk.isResolved() ? MINE : UNKNOWN;
+    }
+
+    /**
+     * @return the number of known mines around a tile that are outside the box from (firstRow, firstColumn) to
+     *         (lastRow, lastColumn), or -1 if a tile around it outside the box is not known.
+     */
+    private int knownMinesOutside(int row, int column, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        int count = 0;
+        for (int i = row - 1; i <= row + 1; i++) {
+            for (int j = column - 1; j <= column + 1; j++) {
+                boolean outside = i < firstRow || i > lastRow || j < firstColumn || j > lastColumn;
+                if (!outside || !isInBounds(i, j)) {
+                    continue;
+                }
+                int state = knownStateOf(i, j);
+                if (state == MINE) {
+                    count++;
+                } else if (state != NUMBERED && state != SAFE) {
+                    return -1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true if an uncleared tile of the chunk at (coreRow, coreColumn) of a board is shown next to a cleared
+     *         tile.
+     */
+    private static boolean hasFrontier(Board board, boolean[] hidden, int coreRow, int coreColumn) {
+        int numRows = board.getNumRows();
+        int numColumns = board.getNumColumns();
+        for (int i = coreRow; i < Math.min(coreRow + Chunk.SIZE, numRows); i++) {
+            for (int j = coreColumn; j < Math.min(coreColumn + Chunk.SIZE, numColumns); j++) {
+                int index = board.index(i, j);
+                if (board.isCleared(index) || board.isFlagged(index) || hidden[index]) {
+                    continue;
+                }
+                for (int k = Math.max(0, i - 1); k <= Math.min(numRows - 1, i + 1); k++) {
+                    for (int l = Math.max(0, j - 1); l <= Math.min(numColumns - 1, j + 1); l++) {
+                        if (board.isCleared(board.index(k, l))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    /**
+     * @return true if the tile at a position is cleared.
+     */
+    public boolean isCleared(int row, int column) {
+        return started && isInBounds(row, column) && chunkAt(row, column).isCleared(Chunk.cellOf(row, column));
+    }
+
+    /**
+     * @return true if the tile at a position is flagged.
+     */
+    public boolean isFlagged(int row, int column) {
+        return started && isInBounds(row, column) && chunkAt(row, column).isFlagged(Chunk.cellOf(row, column));
+    }
+
+    /**
+     * @return true if the tile at a position has a mine, always false before the first clear.
+     */
+    public boolean hasMine(int row, int column) {
+        return started && isInBounds(row, column) && chunkAt(row, column).hasMine(Chunk.cellOf(row, column));
+    }
+
+    /**
+     * @return the number of mines around a cleared tile, 0 for an uncleared tile.
+     */
+    public int getNumberOfNeighboringMines(int row, int column) {
+        if (!isCleared(row, column)) {
+            return 0;
+        }
+        Chunk chunk = chunkAt(row, column);
+        int cell = Chunk.cellOf(row, column);
+        if (!chunk.hasNumber(cell)) {
+            // a tile of a restored chunk
+            int number = countNeighboringMines(row, column);
+            chunk = chunkAt(row, column);
+            chunk.setNumber(cell, number);
+        }
+        return chunk.getNumberOfNeighboringMines(cell);
+    }
+
+    /**
+     * @return the status of the game. A game on an unbounded board is never won.
+     */
+    public Status status() {
+        if (playing) {
+            return Status.PLAYING;
+        }
+        return won ? Status.WIN : Status.LOSE;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public long getNumberOfTilesCleared() {
+        return numTilesCleared;
+    }
+
+    public int getNumberOfMoves() {
+        return numMoves;
+    }
+
+    /**
+     * @return the number of chunks held in memory.
+     */
+    public int getNumberOfLoadedChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * @return the number of chunks whose tiles without a mine are all cleared.
+     */
+    public int getNumberOfResolvedChunks() {
+        return resolvedChunks.size();
+    }
+
+    public double getDensity() {
+        return density;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+}
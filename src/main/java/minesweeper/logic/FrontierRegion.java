@@ -0,0 +1,66 @@
+package src.main.java.minesweeper.logic;
+
+/**
+ * What a player sees of a ChunkedMinesweeper game around one chunk of its frontier: a TilingState over the chunk, its
+ * core, and a margin of tiles around it, see ChunkedMinesweeper.getFrontierRegions().
+ * Every rule the solver builds from the state is implied by the game: a cleared tile of the margin whose neighbors
+ * outside the state are not all known is shown uncleared, as are the tiles whose state cannot be read without loading
+ * their chunk. These hidden tiles may already be cleared, so they must not be played.
+ */
+public class FrontierRegion {
+
+    private TilingState<Tile> tilingState;
+    private long key;
+    private int firstRow;
+    private int firstColumn;
+    private boolean[] hidden;
+
+    /**
+     * @param tilingState the state of the tiles of the region
+     * @param key the key of the chunk of the core
+     * @param firstRow the row on the board of the first row of the state
+     * @param firstColumn the column on the board of the first column of the state
+     * @param hidden the tiles shown uncleared although they may be cleared, by index in the state
+     */
+    FrontierRegion(TilingState<Tile> tilingState, long key, int firstRow, int firstColumn, boolean[] hidden) {
+        this.tilingState = tilingState;
+        this.key = key;
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.hidden = hidden;
+    }
+
+    public TilingState<Tile> getTilingState() {
+        return tilingState;
+    }
+
+    /**
+     * @return the row on the board of a tile of the state.
+     */
+    public int rowOf(Tile tile) {
+        return firstRow + tile.getRow();
+    }
+
+    /**
+     * @return the column on the board of a tile of the state.
+     */
+    public int columnOf(Tile tile) {
+        return firstColumn + tile.getColumn();
+    }
+
+    /**
+     * Each uncleared tile next to a cleared tile is in the core of exactly one region, so choosing among the tiles of
+     * the cores compares every tile once, with the probabilities of the region that sees the most around it.
+     * @return true if a tile of the state is in the chunk of the region, false if it is in the margin.
+     */
+    public boolean isInCore(Tile tile) {
+        return Chunk.keyOf(rowOf(tile), columnOf(tile)) == key;
+    }
+
+    /**
+     * @return false if a tile of the state is hidden, so it may already be cleared and must not be played.
+     */
+    public boolean isPlayable(Tile tile) {
+        return !hidden[tilingState.indexOf(tile)];
+    }
+}
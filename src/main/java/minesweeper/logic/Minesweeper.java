@@ -1,21 +1,20 @@
 package src.main.java.minesweeper.logic;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Non-generic Minesweeper game implementation.
- * Uses a TilingState of Tile objects.
+ * The game state is a Board of primitive arrays. The TilingState of Tile objects, which are views of the cells of the
+ * board, is only created when asked for, so games played through the board alone never allocate per cell objects.
  * Logic only, no UI elements.
  * @author Daniel Öman
  * @version 1.0
  */
 public class Minesweeper {
 
-    private TilingState<Tile> tilingState;
-    private Set<Tile> mineSet;
+    private Board board;
+    private TilingState<Tile> tilingState; // created on first use, see getTilingState()
     private int rows;
     private int columns;
     private int numMines;
@@ -29,7 +28,11 @@ public class Minesweeper {
 
     private int numMoves;
 
-    private Random random;
+    /** Indices of the tiles revealed by the last move, in order, also the queue of the flood fill, grown as needed */
+    private int[] revealed;
+    private int numRevealed;
+
+    private RandomGenerator random;
 
     /** Time elapsed since game start */
     private long elapsedMillis;
@@ -41,39 +44,41 @@ public class Minesweeper {
      * @param difficulty the difficulty of this game instance
      */
     public Minesweeper(Difficulty difficulty) {
-        this(difficulty, new Random());
+        this(difficulty, new SplittableRandom());
+    }
+
+    /**
+     * Constructor for a reproducible game.
+     * @param difficulty the difficulty of this game instance
+     * @param seed the seed of the SplittableRandom generating mine positions.
+     */
+    public Minesweeper(Difficulty difficulty, long seed) {
+        this(difficulty, new SplittableRandom(seed));
     }
 
     /**
      * 2-arg constructor.
      * @param difficulty the difficulty of this game instance
-     * @param random the random number generator to use when generating mine positions.
+     * @param random the random number generator to use when generating mine positions, e.g. a Random or a
+     *               SplittableRandom.
      */
-    public Minesweeper(Difficulty difficulty, Random random) {
+    public Minesweeper(Difficulty difficulty, RandomGenerator random) {
         rows = difficulty.getNumberOfRows();
         columns = difficulty.getNumberOfColumns();
         initialDensity = difficulty.getDensity();
         numMines = difficulty.getNumberOfMines();
-        mineSet = new HashSet<>();
+        board = new Board(rows, columns, initialDensity);
+        revealed = new int[64];
         playing = true;
         numTilesCleared = 0;
         flagsRemaining = numMines;
-
-        // initialize the tiling state
-        tilingState = new TilingState<>(rows, columns, numMines);
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                Tile tile = new Tile(i, j, difficulty.getDensity());
-                tilingState.add(i, j, tile);
-            }
-        }
         this.random = random;
         this.elapsedMillis = 0;
     }
 
     @Override
     public String toString() {
-        return tilingState.toString();
+        return getTilingState().toString();
     }
 
     /**
@@ -83,55 +88,42 @@ public class Minesweeper {
      * @return if the position is within the bounds of the minefield
      */
     public boolean isInBounds(int row, int column) {
-        return tilingState.isInBounds(row, column);
+        return board.isInBounds(row, column);
     }
 
     /**
-     * Generate the game state. Will guarantee a 0 on start.
+     * Generate the game state. The starting tile is guaranteed not to be a mine, unless the density is 1.
+     * Mines are drawn with a partial Fisher-Yates shuffle of the cell indices: the i-th mine is swapped into position
+     * i from the positions after it, so each mine takes one draw and the work is linear in the number of mines.
+     * The starting cell is swapped past the candidates before drawing, so it is never drawn.
      * @param startingRow the row of the first position cleared.
      * @param startingColumn the column of the first position cleared.
      */
     private void startGame(int startingRow, int startingColumn) {
         // Begin by randomly generating mines
         this.startTime = System.currentTimeMillis();
-        List<int[]> validPositions = new ArrayList<>();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                validPositions.add(new int[]{i, j});
-            }
+        int numCells = rows * columns;
+        int numCandidates = numMines <= numCells - 1 ? numCells - 1 : numCells;
+        // shuffled[i] - 1 is the cell at position i of the shuffle, 0 while it is still cell i, so the zeroed array
+        // needs no initialization
+        int[] shuffled = new int[numCells];
+        if (numCandidates < numCells) {
+            shuffled[board.index(startingRow, startingColumn)] = numCells;
         }
         for (int i = 0; i < numMines; i++) {
+            int j = i + random.nextInt(numCandidates - i);
+            int minePosition = cellAt(shuffled, j);
+            shuffled[j] = cellAt(shuffled, i) + 1;
 
-            int randomIndex = random.nextInt(validPositions.size());
-            int[] minePosition = validPositions.get(randomIndex);
-            int row = minePosition[0];
-            int column = minePosition[1];
-
-            // Guaranteed to not start on a mine, unless the density is 1.
-            if (numMines <= rows * columns - 1) {
-                while (row == startingRow && column == startingColumn) {
-                    randomIndex = random.nextInt(validPositions.size());
-                    minePosition = validPositions.get(randomIndex);
-                    row = minePosition[0];
-                    column = minePosition[1];
-                }
-            }
-
-            validPositions.remove(randomIndex);
-
-            // add to the mineset if it is a mine
-            mineSet.add(getTileAt(row, column));
-            // now go around and increment the tiles immediately around it
-            for (int x = row - 1; x < row + 2; x++) {
-                for (int y = column - 1; y < column + 2; y++) {
-                    if (!(x == row && y == column) && isInBounds(x, y)) {
-                        getTileAt(x, y).incrementNumberOfNeighboringMines();
-                    }
-                }
-            }
+            // place the mine, and increment the tiles immediately around it
+            board.placeMine(minePosition);
         }
     }
 
+    private static int cellAt(int[] shuffled, int position) {
+        return shuffled[position] == 0 ? position : shuffled[position] - 1;
+    }
+
     /**
      * Returns the tile at a given positon.
      * @param row the row to get
@@ -139,7 +131,7 @@ public class Minesweeper {
      * @return the tile at (row, column)
      */
     public Tile getTileAt(int row, int column) {
-        return tilingState.get(row, column);
+        return getTilingState().get(row, column);
     }
 
     /**
@@ -157,15 +149,27 @@ public class Minesweeper {
      * @param column the column of the tile to clear
      */
     public void clear(int row, int column) {
+        numRevealed = 0;
+        clearTile(row, column);
+    }
+
+    /**
+     * Clears a tile, adding the tiles it reveals to those of the current move.
+     */
+    private void clearTile(int row, int column) {
         if (playing) {
-            Tile currentTile = getTileAt(row, column);
-            if (!currentTile.isCleared() && !currentTile.isFlagged()) {
+            int index = board.index(row, column);
+            if (!board.isCleared(index) && !board.isFlagged(index)) {
                 // Generate the tiles if no tiles have been cleared.
                 if (numTilesCleared == 0) {
                     startGame(row, column);
                 }
-                playing = clearSurroundingTiles(currentTile);
-                tilingState.updateDensity(density());
+                int firstRevealed = numRevealed;
+                playing = clearSurroundingTiles(index);
+                for (int i = firstRevealed; i < numRevealed; i++) {
+                    updateTilingState(revealed[i]);
+                }
+                updateDensity();
                 if (playing && numTilesCleared == rows * columns - numMines) {
                     won = true;
                     playing = false;
@@ -189,38 +193,98 @@ public class Minesweeper {
      * @param tile the tile to attempt to multi-clear
      */
     public void multiClear(Tile tile) {
-        if (tile.isCleared() && tile.getNumberOfNeighboringMines() > 0 && tile.getNumberOfNeighboringMines() == tilingState.getNumberOfFlaggedNeighbors(tile)){
-            Set<Tile> neighbors = tilingState.getNeighbors(tile);
-            for (Tile neighbor : neighbors) {
-                clear(neighbor);
+        numRevealed = 0;
+        int index = board.index(tile.getRow(), tile.getColumn());
+        int number = board.getNumberOfNeighboringMines(index);
+        if (board.isCleared(index) && number > 0 && number == getNumberOfFlaggedNeighbors(tile.getRow(), tile.getColumn())) {
+            for (int i = tile.getRow() - 1; i < tile.getRow() + 2; i++) {
+                for (int j = tile.getColumn() - 1; j < tile.getColumn() + 2; j++) {
+                    if (!(i == tile.getRow() && j == tile.getColumn()) && isInBounds(i, j)) {
+                        clearTile(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of flagged tiles around (row, column).
+     */
+    private int getNumberOfFlaggedNeighbors(int row, int column) {
+        int count = 0;
+        for (int i = row - 1; i < row + 2; i++) {
+            for (int j = column - 1; j < column + 2; j++) {
+                if (!(i == row && j == column) && isInBounds(i, j) && board.isFlagged(board.index(i, j))) {
+                    count++;
+                }
             }
         }
+        return count;
     }
 
     /**
-     * Recursive helper method to clear the tiles using DFS.
-     * Clears all this tile and adjacent tiles if not visited, stops after it clears a non-zero or flagged tile.
-     * @param curr the current tile we are clearing
-     * @return false if the current tile is a mine, true otherwise.
-     *         Will only return false if the first tile in the recursive callis a mine.
+     * Iterative helper method to clear the tiles using BFS.
+     * Clears this tile, and the tiles around every cleared tile numbered 0, without clearing flagged tiles.
+     * The revealed tiles are the queue: each one is appended once as it is cleared, and the zeros among them are
+     * expanded in order, so the fill only allocates when it reveals more tiles than any move before, and its depth is
+     * not limited by the stack.
+     * @param start the index of the tile we are clearing
+     * @return false if the tile is a mine, true otherwise.
      */
-    private boolean clearSurroundingTiles(Tile curr) {
-        if (hasMine(curr)) {
+    private boolean clearSurroundingTiles(int start) {
+        if (board.hasMine(start)) {
             return false;
         }
-        if (!curr.isCleared() && !curr.isFlagged()) {
-            curr.setCleared();
-            numTilesCleared++;
-            if (curr.getNumberOfNeighboringMines() == 0) {
-                Set<Tile> neighbors = tilingState.getNeighbors(curr);
-                for (Tile tile : neighbors) {
-                    clearSurroundingTiles(tile);
+        if (board.isCleared(start) || board.isFlagged(start)) {
+            return true;
+        }
+        int head = numRevealed;
+        reveal(start);
+        while (head < numRevealed) {
+            int index = revealed[head++];
+            if (board.getNumberOfNeighboringMines(index) != 0) {
+                continue;
+            }
+            int row = board.rowOf(index);
+            int column = board.columnOf(index);
+            for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+                for (int j = Math.max(0, column - 1); j <= Math.min(columns - 1, column + 1); j++) {
+                    int neighbor = board.index(i, j);
+                    // a tile around a zero is never a mine
+                    if (!board.isCleared(neighbor) && !board.isFlagged(neighbor)) {
+                        reveal(neighbor);
+                    }
                 }
             }
         }
         return true;
     }
 
+    private void reveal(int index) {
+        board.setCleared(index);
+        numTilesCleared++;
+        if (numRevealed == revealed.length) {
+            revealed = Arrays.copyOf(revealed, Math.min(revealed.length * 2, rows * columns));
+        }
+        revealed[numRevealed++] = index;
+    }
+
+    /**
+     * The delta of the last move: every tile it revealed, including the cascade of a zero, so a consumer can update
+     * only those. Empty after a flag, a move on a mine, or a move that changed nothing.
+     * @return the indices of the revealed tiles on the board, see Board.index(), in the order they were revealed.
+     */
+    public int[] getLastRevealed() {
+        return Arrays.copyOf(revealed, numRevealed);
+    }
+
+    /**
+     * @return the number of tiles revealed by the last move, see getLastRevealed().
+     */
+    public int getNumberOfLastRevealed() {
+        return numRevealed;
+    }
+
     /**
      * Method to flag a tile
      * Utilized in tile clicking functionality.
@@ -228,20 +292,22 @@ public class Minesweeper {
      * @param column the column of the tile to flag
      */
     public void flag(int row, int column) {
+        numRevealed = 0;
         if (playing) {
-            Tile currentTile = getTileAt(row, column);
-            if (!currentTile.isCleared()) {
-                if (!currentTile.isFlagged()) {
+            int index = board.index(row, column);
+            if (!board.isCleared(index)) {
+                if (!board.isFlagged(index)) {
                     if (flagsRemaining > 0) {
                         flagsRemaining--;
-                        currentTile.setFlag(true);
+                        board.setFlag(index, true);
                     }
                 } else {
                     flagsRemaining++;
-                    currentTile.setFlag(false);
+                    board.setFlag(index, false);
                 }
+                updateTilingState(index);
                 numMoves++;
-                tilingState.updateDensity(density());
+                updateDensity();
             }
         }
     }
@@ -276,11 +342,21 @@ public class Minesweeper {
     }
 
     /**
-     * Check if a tile is a mine (the tile is contained within the mineSet)
+     * Check if a tile is a mine (its cell is set in the mine bitset of the Board)
      * @return true if the tile is a mine, false otherwise
      */
     public boolean hasMine(Tile tile) {
-        return mineSet.contains(tile);
+        return hasMine(tile.getRow(), tile.getColumn());
+    }
+
+    /**
+     * Check if the tile at a position is a mine.
+     * @param row the row of the tile
+     * @param column the column of the tile
+     * @return true if the tile is a mine, false otherwise
+     */
+    public boolean hasMine(int row, int column) {
+        return board.hasMine(board.index(row, column));
     }
 
     /**
@@ -330,15 +406,16 @@ public class Minesweeper {
      */
     public boolean removeAllFlags() {
         boolean flagRemoved = false;
-        for (Tile tile : tilingState) {
-            if (tile.isFlagged()) {
+        for (int index = 0; index < board.size(); index++) {
+            if (board.isFlagged(index)) {
                 flagsRemaining++;
-                tile.setFlag(false);
+                board.setFlag(index, false);
+                updateTilingState(index);
                 flagRemoved = true;
             }
         }
         if (flagRemoved) {
-            tilingState.updateDensity(density());
+            updateDensity();
         }
         return flagRemoved;
     }
@@ -350,6 +427,24 @@ public class Minesweeper {
         return (double) numMines / (rows * columns - numTilesCleared - (numMines - flagsRemaining));
     }
 
+    /**
+     * Passes the current density to the tiling state, if it was created.
+     */
+    private void updateDensity() {
+        if (tilingState != null) {
+            tilingState.updateDensity(density());
+        }
+    }
+
+    /**
+     * Passes a change of the tile at an index to the tiling state, if it was created.
+     */
+    private void updateTilingState(int index) {
+        if (tilingState != null) {
+            tilingState.update(index);
+        }
+    }
+
     /**
      * @return the initial density of the game.
      */
@@ -384,6 +479,22 @@ public class Minesweeper {
      * @return the current tiling state of the game.
      */
     public TilingState<Tile> getTilingState() {
+        if (tilingState == null) {
+            tilingState = new TilingState<>(rows, columns, numMines);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    tilingState.add(i, j, new Tile(board, i, j));
+                }
+            }
+            tilingState.updateDensity(density());
+        }
         return tilingState;
     }
+
+    /**
+     * @return the primitive game state, to play large games without Tile objects.
+     */
+    public Board getBoard() {
+        return board;
+    }
 }
@@ -0,0 +1,106 @@
+package src.main.java.minesweeper.logic;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Table of the neighbors of the cells of a board shape, addressed by index, row * columns + column.
+ * The index offsets of the 8 neighbors are computed once, when the table is created with its board, and only cells on
+ * the border are checked against the bounds. Nothing is allocated when iterating over neighbors.
+ */
+public class Neighborhood {
+
+    /** The neighbors of a cell, in row-major order */
+    private static final int[] ROW_OFFSETS = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] COLUMN_OFFSETS = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    /** The maximum number of neighbors of a cell, the size of an array that can hold the neighbors of any cell */
+    public static final int MAX_NEIGHBORS = 8;
+
+    private final int rows;
+    private final int columns;
+    private final int[] offsets;
+
+    /**
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public Neighborhood(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.offsets = new int[MAX_NEIGHBORS];
+        for (int k = 0; k < MAX_NEIGHBORS; k++) {
+            offsets[k] = ROW_OFFSETS[k] * columns + COLUMN_OFFSETS[k];
+        }
+    }
+
+    /**
+     * Writes the indices of the neighbors of a cell to an array, in row-major order.
+     * @param index the index of the cell
+     * @param neighbors the array to fill, of length at least MAX_NEIGHBORS
+     * @return the number of neighbors written.
+     */
+    public int neighbors(int index, int[] neighbors) {
+        int row = index / columns;
+        int column = index - row * columns;
+        if (isInterior(row, column)) {
+            for (int k = 0; k < MAX_NEIGHBORS; k++) {
+                neighbors[k] = index + offsets[k];
+            }
+            return MAX_NEIGHBORS;
+        }
+        int count = 0;
+        for (int k = 0; k < MAX_NEIGHBORS; k++) {
+            if (isInBounds(row + ROW_OFFSETS[k], column + COLUMN_OFFSETS[k])) {
+                neighbors[count++] = index + offsets[k];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calls an action with the index of every neighbor of a cell, in row-major order.
+     * @param index the index of the cell
+     * @param action the action to call
+     */
+    public void forEach(int index, IntConsumer action) {
+        int row = index / columns;
+        int column = index - row * columns;
+        boolean interior = isInterior(row, column);
+        for (int k = 0; k < MAX_NEIGHBORS; k++) {
+            if (interior || isInBounds(row + ROW_OFFSETS[k], column + COLUMN_OFFSETS[k])) {
+                action.accept(index + offsets[k]);
+            }
+        }
+    }
+
+    /**
+     * @param index the index of a cell
+     * @return the number of neighbors of the cell, 3 in a corner, 5 on an edge and 8 elsewhere.
+     */
+    public int numberOfNeighbors(int index) {
+        int row = index / columns;
+        int column = index - row * columns;
+        int numRows = (row > 0 ? 1 : 0) + 1 + (row < rows - 1 ? 1 : 0);
+        int numColumns = (column > 0 ? 1 : 0) + 1 + (column < columns - 1 ? 1 : 0);
+        return numRows * numColumns - 1;
+    }
+
+    /**
+     * @return true if (row, column) is a cell of the board shape.
+     */
+    public boolean isInBounds(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    private boolean isInterior(int row, int column) {
+        return row > 0 && row < rows - 1 && column > 0 && column < columns - 1;
+    }
+
+    public int getNumRows() {
+        return rows;
+    }
+
+    public int getNumColumns() {
+        return columns;
+    }
+}
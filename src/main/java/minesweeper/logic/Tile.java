@@ -1,54 +1,72 @@
 package src.main.java.minesweeper.logic;
 
 /**
- * Class to represent the tile
+ * Class to represent the tile.
+ * A tile is a view of one cell of a Board, which holds its state. The tiles of a game are only created when its
+ * TilingState is asked for, see Minesweeper.getTilingState().
  */
 public class Tile implements MinesweeperTileable {
+    private Board board;
+    private int index;
     private int row;
     private int column;
-    private int neighboringMines;
-    private boolean flag;
-    private boolean cleared;
-    private double initialDensity;
 
     /**
-     * Constructor for a tile.
-     * This constructor is most accurately used after populating mines set.
+     * Constructor for a tile on its own, backed by a board of one cell.
+     * Every such tile has the same hash code, so the tiles of a game state should be views of one Board instead.
      * @param row the row the tile is on
      * @param column the column the tile is on
+     * @param initialDensity the probability that the tile has a mine before the game starts
      */
     public Tile(int row, int column, double initialDensity) {
+        this.board = new Board(1, 1, initialDensity);
+        this.index = 0;
+        this.row = row;
+        this.column = column;
+    }
+
+    /**
+     * Constructor for a view of a cell of a board.
+     * @param board the board holding the state of the tile
+     * @param row the row the tile is on
+     * @param column the column the tile is on
+     */
+    public Tile(Board board, int row, int column) {
+        this.board = board;
+        this.index = board.index(row, column);
         this.row = row;
         this.column = column;
-        cleared = false;
-        this.initialDensity = initialDensity;
     }
 
     // Overriden from Tileable
 
     @Override()
     public int getNumberOfNeighboringMines() {
-        return neighboringMines;
+        return board.getNumberOfNeighboringMines(index);
     }
 
     @Override
     public double initialDensity() {
-        return initialDensity;
+        return board.getInitialDensity();
     }
 
+    /**
+     * The index of the cell on its board, so the tiles of one game state never collide. Tiles are only compared within
+     * a game state, as equal tiles of boards of different widths have different hash codes.
+     */
     @Override
     public int hashCode() {
-        return row * 5 + column * 7;
+        return index;
     }
 
     @Override
     public boolean isFlagged() {
-        return flag;
+        return board.isFlagged(index);
     }
 
     @Override
     public boolean isCleared() {
-        return cleared;
+        return board.isCleared(index);
     }
 
     @Override
@@ -64,15 +82,15 @@ public class Tile implements MinesweeperTileable {
     // The only necessary methods for this concrete minesweeper implementation.
 
     public void incrementNumberOfNeighboringMines() {
-        neighboringMines++;
+        board.incrementNumberOfNeighboringMines(index);
     }
 
     public void setFlag(boolean flag) {
-        this.flag = flag;
+        board.setFlag(index, flag);
     }
 
     public void setCleared() {
-        cleared = true;
+        board.setCleared(index);
     }
 
 
@@ -80,7 +98,7 @@ public class Tile implements MinesweeperTileable {
 
     @Override
     public String toString() {
-        return String.format("(%d, %d): %d", row, column, neighboringMines);
+        return String.format("(%d, %d): %d", row, column, getNumberOfNeighboringMines());
     }
 
     @Override
@@ -89,7 +107,7 @@ public class Tile implements MinesweeperTileable {
             Tile other = (Tile) o;
             return this.row == other.row
                 && this.column == other.column
-                && this.neighboringMines == other.neighboringMines;
+                && this.getNumberOfNeighboringMines() == other.getNumberOfNeighboringMines();
         }
         return false;
     }
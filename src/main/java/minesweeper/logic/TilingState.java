@@ -4,15 +4,28 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Generic to represent the current TilingState.
  * Represents a "snapshot" of a game, no knowledge of mines at all.
+ * Tiles are stored in row-major order, and can be addressed by their index, row * columns + column, see indexOf().
+ * The numbers of flagged and uncleared neighbors of every position are kept as tiles change, so a tile that is
+ * cleared or flagged after it was added must be passed to update().
  */
 public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
-    private T[][] tiles;
+    private static final int CLEARED = 1;
+    private static final int FLAGGED = 2;
+
+    private T[] tiles;
     private int rows;
     private int columns;
+    private Neighborhood neighborhood;
+
+    /** The cleared and flagged bits of every tile when it was last added or updated */
+    private byte[] states;
+    private byte[] numFlaggedNeighbors;
+    private byte[] numUnclearedNeighbors;
 
     private int numMines;
 
@@ -20,11 +33,19 @@ public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
 
     @SuppressWarnings("unchecked")
     public TilingState(int rows, int columns, int numMines) {
-        tiles = (T[][]) new MinesweeperTileable[rows][columns];
+        tiles = (T[]) new MinesweeperTileable[rows * columns];
         this.rows = rows;
         this.columns = columns;
         this.numMines = numMines;
         this.density = (double) numMines / (rows * columns);
+        neighborhood = new Neighborhood(rows, columns);
+        states = new byte[rows * columns];
+        numFlaggedNeighbors = new byte[rows * columns];
+        numUnclearedNeighbors = new byte[rows * columns];
+        // no tile is cleared yet
+        for (int index = 0; index < numUnclearedNeighbors.length; index++) {
+            numUnclearedNeighbors[index] = (byte) neighborhood.numberOfNeighbors(index);
+        }
     }
 
     /**
@@ -39,14 +60,71 @@ public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
      * Add a tile to a given position
      */
     public void add(int row, int column, T tile) {
-        tiles[row][column] = tile;
+        int index = indexOf(row, column);
+        tiles[index] = tile;
+        update(index);
     }
 
     /**
      * Return a tile at a given position
      */
     public T get(int row, int column) {
-        return tiles[row][column];
+        return tiles[indexOf(row, column)];
+    }
+
+    /**
+     * Return the tile at a given index
+     */
+    public T get(int index) {
+        return tiles[index];
+    }
+
+    /**
+     * @return the index of a position, row * columns + column.
+     */
+    public int indexOf(int row, int column) {
+        return row * columns + column;
+    }
+
+    /**
+     * @return the index of the position of a tile.
+     */
+    public int indexOf(T tile) {
+        return indexOf(tile.getRow(), tile.getColumn());
+    }
+
+    /**
+     * Updates the neighbor counts around a tile that was cleared, flagged or unflagged since it was added.
+     * Does nothing if the tile did not change.
+     */
+    public void update(T tile) {
+        update(indexOf(tile));
+    }
+
+    /**
+     * Updates the neighbor counts around the tile at an index, see update(T).
+     */
+    public void update(int index) {
+        T tile = tiles[index];
+        int state = tile == null ? 0 : (tile.isCleared() ? CLEARED : 0) | (tile.isFlagged() ? FLAGGED : 0);
+        int previous = states[index];
+        if (state == previous) {
+            return;
+        }
+        states[index] = (byte) state;
+        int flaggedChange = (state & FLAGGED) / FLAGGED - (previous & FLAGGED) / FLAGGED;
+        int unclearedChange = (previous & CLEARED) - (state & CLEARED);
+        int row = index / columns;
+        int column = index - row * columns;
+        for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+            for (int j = Math.max(0, column - 1); j <= Math.min(columns - 1, column + 1); j++) {
+                if (i != row || j != column) {
+                    int neighbor = i * columns + j;
+                    numFlaggedNeighbors[neighbor] += flaggedChange;
+                    numUnclearedNeighbors[neighbor] += unclearedChange;
+                }
+            }
+        }
     }
 
     public int getTotalNumberOfMines() {
@@ -69,24 +147,46 @@ public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
      * Helper method to determine if a position is in bounds.
      */
     public boolean isInBounds(int row, int column) {
-        return row >= 0 && row < rows
-            && column >= 0 && column < columns
-            && row * column <= (rows - 1) * (columns - 1) && row * column >= 0;
+        return row >= 0 && row < rows && column >= 0 && column < columns;
     }
 
     /**
      * Get neighbors of a given Tileable.
+     * Builds a new set, loops should use getNeighborIndices() or forEachNeighbor() instead.
      */
     public Set<T> getNeighbors(T tile) {
         Set<T> neighbors = new HashSet<>();
-        for (int i = tile.getRow() - 1; i < tile.getRow() + 2; i++) {
-            for (int j = tile.getColumn() - 1; j < tile.getColumn() + 2; j++) {
-                if (!(i == tile.getRow() && j == tile.getColumn()) && isInBounds(i, j)) {
-                    neighbors.add(get(i, j));
+        int[] indices = new int[Neighborhood.MAX_NEIGHBORS];
+        int numNeighbors = neighborhood.neighbors(indexOf(tile), indices);
+        for (int k = 0; k < numNeighbors; k++) {
+            neighbors.add(tiles[indices[k]]);
+        }
+        return neighbors;
+    }
+
+    /**
+     * Writes the indices of the neighbors of a tile to an array, without allocating.
+     * @param tile the tile
+     * @param neighbors the array to fill, of length at least Neighborhood.MAX_NEIGHBORS
+     * @return the number of neighbors written.
+     */
+    public int getNeighborIndices(T tile, int[] neighbors) {
+        return neighborhood.neighbors(indexOf(tile), neighbors);
+    }
+
+    /**
+     * Calls an action with every neighbor of a tile, without allocating.
+     */
+    public void forEachNeighbor(T tile, Consumer<? super T> action) {
+        int row = tile.getRow();
+        int column = tile.getColumn();
+        for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+            for (int j = Math.max(0, column - 1); j <= Math.min(columns - 1, column + 1); j++) {
+                if (i != row || j != column) {
+                    action.accept(tiles[i * columns + j]);
                 }
             }
         }
-        return neighbors;
     }
 
     /**
@@ -94,35 +194,36 @@ public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
      */
     public Set<T> getOutOfPlayNeighbors(T tile) {
         Set<T> cleared = new HashSet<>();
-        Set<T> neighbors = getNeighbors(tile);
-        for (T neighbor : neighbors) {
-            if (neighbor.isCleared() || neighbor.isFlagged()) {
-                cleared.add(neighbor);
+        int[] indices = new int[Neighborhood.MAX_NEIGHBORS];
+        int numNeighbors = neighborhood.neighbors(indexOf(tile), indices);
+        for (int k = 0; k < numNeighbors; k++) {
+            if (states[indices[k]] != 0) {
+                cleared.add(tiles[indices[k]]);
             }
         }
         return cleared;
     }
 
+    /**
+     * @return true if the tile at an index is cleared or flagged.
+     */
+    public boolean isOutOfPlay(int index) {
+        return states[index] != 0;
+    }
+
     public int getNumberOfUnclearedNeighbors(T tile) {
-        int count = 0;
-        Set<T> neighbors = getNeighbors(tile);
-        for (T neighbor : neighbors) {
-            if (!neighbor.isCleared()) {
-                count++;
-            }
-        }
-        return count;
+        return numUnclearedNeighbors[indexOf(tile)];
     }
 
     public int getNumberOfFlaggedNeighbors(T tile) {
-        int count = 0;
-        Set<T> neighbors = getNeighbors(tile);
-        for (T neighbor : neighbors) {
-            if (neighbor.isFlagged()) {
-                count++;
-            }
-        }
-        return count;
+        return numFlaggedNeighbors[indexOf(tile)];
+    }
+
+    /**
+     * @return the table of neighbors of the shape of this tiling state.
+     */
+    public Neighborhood getNeighborhood() {
+        return neighborhood;
     }
 
     /**
@@ -174,7 +275,7 @@ public class TilingState<T extends MinesweeperTileable> implements Iterable<T>{
             if (!hasNext()) {
                 throw new NoSuchElementException("No more tiles in this TilingState");
             }
-            T returnTile = tiles[currentRow][currentColumn];
+            T returnTile = tiles[currentRow * columns + currentColumn];
 
             if (++currentRow >= rows) {
                 currentRow = 0;
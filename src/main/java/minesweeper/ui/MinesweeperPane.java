@@ -11,7 +11,10 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import src.main.java.minesweeper.bot.Bot;
+import src.main.java.minesweeper.bot.strategy.MoveBatch;
+import src.main.java.minesweeper.bot.strategy.BotStrategy;
 import src.main.java.minesweeper.bot.strategy.StrategyTypeOnTile;
+import src.main.java.minesweeper.bot.strategy.probabilistic.ProbabilisticStrategy;
 import src.main.java.minesweeper.logic.Difficulty;
 import src.main.java.minesweeper.logic.Minesweeper;
 import src.main.java.minesweeper.logic.Status;
@@ -23,6 +26,9 @@ import src.main.java.minesweeper.ui.gamedata.GameDataIO;
  */
 public class MinesweeperPane extends GridPane {
 
+    /** The time a probabilistic bot may think about one move before it answers approximately */
+    private static final long BOT_TIME_LIMIT_MILLIS = 5000;
+
     private Minesweeper minesweeper;
     private TilePane[][] tilePanes;
 
@@ -41,6 +47,7 @@ public class MinesweeperPane extends GridPane {
     private boolean eligibleToBeSaved = true;
 
     private Thread botThread;
+    private Bot<Tile> activeBot;
 
     private int botDelay = 100; // 1000 is one second, delay in milliseconds
 
@@ -75,6 +82,7 @@ public class MinesweeperPane extends GridPane {
         toggleBot.setOnAction(e -> {
             if (minesweeper.isPlaying()) {
                 if (botActivated) {
+                    activeBot.cancel(); // do not wait for a long solve to finish
                     clearDecisionOverlay();
                     toggleBot.setText("Start Bot");
                 } else {
@@ -94,7 +102,14 @@ public class MinesweeperPane extends GridPane {
 
                     StrategyTypeOnTile strategyType = botStrategySelector.getValue();
 
-                    Bot<Tile> bot = new Bot<>(minesweeper.getTilingState(), strategyType.getStrategy());
+                    BotStrategy<Tile> strategy = strategyType.getStrategy();
+                    if (strategy instanceof ProbabilisticStrategy) {
+                        // a pathological board must not freeze the bot
+                        ((ProbabilisticStrategy<Tile>) strategy).setTimeLimitMillis(BOT_TIME_LIMIT_MILLIS);
+                    }
+                    Bot<Tile> bot = new Bot<>(minesweeper.getTilingState(), strategy);
+                    bot.resume(); // the strategies are shared, so the last stop may have cancelled this one
+                    activeBot = bot;
                     BotRunner botRunner = new BotRunner(bot);
                     botThread = new Thread(botRunner);
                     botThread.start();
@@ -291,8 +306,11 @@ public class MinesweeperPane extends GridPane {
                     timer.start();
                 }
 
-                // find the tile to clear
-                Tile tileToClear = bot.tileToClear();
+                // find the moves to make
+                MoveBatch<Tile> moves = bot.nextMoves();
+                if (!botActivated) {
+                    break; // stopped while solving, the answer may be approximate
+                }
 
                 // apply decision details to tiles
                 Map<Tile, ? extends Number> decisionDetails = bot.decisionDetails();
@@ -302,30 +320,43 @@ public class MinesweeperPane extends GridPane {
                     Platform.runLater(() -> applyDecisionOverlay(decisionDetails));
                 }
 
-                // highlight the tile we are about to clear
-                Platform.runLater(() -> enableHoverColor(tileToClear));
-
-                // "thinking" delay time.
-                try {
-                    Thread.sleep(botDelay);
-                } catch (InterruptedException e) {
-                    System.out.println(e.getMessage());
+                // apply flags to the tiles that certainly have a mine
+                for (Tile tile : moves.getTilesToFlag()) {
+                    if (!tile.isFlagged()) {
+                        minesweeper.flag(tile.getRow(), tile.getColumn());
+                    }
                 }
 
-                // apply flags to the tiles that we want to flag
-                // List<Tile> tilesToFlag = bot.tilesToFlag();
-                // for (Tile tile : tilesToFlag) {
-                //     tile.setFlag(true);
-                // }
+                // clear every tile of the batch, one per delay, without solving again
+                Tile tileToClear = null;
+                for (Tile tile : moves.getTilesToClear()) {
+                    if (!botActivated || !minesweeper.isPlaying()) {
+                        break;
+                    }
+                    if (tile.isCleared()) {
+                        continue; // opened by an earlier tile of the batch
+                    }
+                    tileToClear = tile;
+
+                    // highlight the tile we are about to clear
+                    Platform.runLater(() -> enableHoverColor(tile));
 
-                // remove the decision hover color
-                Platform.runLater(() -> disableHoverColor(tileToClear));
-                Platform.runLater(() -> updateDecisionOverlay());
+                    // "thinking" delay time.
+                    try {
+                        Thread.sleep(botDelay);
+                    } catch (InterruptedException e) {
+                        System.out.println(e.getMessage());
+                    }
 
-                // clear the tile
-                minesweeper.clear(tileToClear);
-                // update UI
-                Platform.runLater(() -> update()); // Update the UI on the UI thread
+                    // remove the decision hover color
+                    Platform.runLater(() -> disableHoverColor(tile));
+                    Platform.runLater(() -> updateDecisionOverlay());
+
+                    // clear the tile
+                    minesweeper.clear(tile);
+                    // update UI
+                    Platform.runLater(() -> update()); // Update the UI on the UI thread
+                }
 
                 // check win/lose condition
                 if (!minesweeper.isPlaying()) {
@@ -333,7 +364,8 @@ public class MinesweeperPane extends GridPane {
                     if (minesweeper.status() == Status.WIN) {
                         Platform.runLater(() -> winAction()); // Run the win action on the UI thread
                     } else if (minesweeper.status() == Status.LOSE) {
-                        Platform.runLater(() -> loseAction(tileToClear)); // Run the lose action on the UI thread
+                        Tile lastCleared = tileToClear;
+                        Platform.runLater(() -> loseAction(lastCleared)); // Run the lose action on the UI thread
                     }
                 }
             }